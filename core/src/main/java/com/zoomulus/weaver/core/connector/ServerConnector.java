@@ -7,4 +7,9 @@ public interface ServerConnector
     int getPort();
     int getDefaultPort();
     ChannelInitializer<?> getChannelInitializer();
+
+    /**
+     * Releases what the connector created for itself, once the server has stopped.
+     */
+    default void shutdown() { }
 }
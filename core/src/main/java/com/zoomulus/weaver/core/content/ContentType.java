@@ -43,14 +43,31 @@ public class ContentType
         return mediaType.equals(rhs.mediaType);
     }
     
+    /**
+     * Parses a known media type.  A charset parameter, if present, becomes the
+     * encoding; otherwise the encoding is UTF-8.
+     */
     public static ContentType valueOf(@NonNull final String cts)
     {
-        final String key = cts.split(";")[0];
+        final String[] parts = cts.split(";");
+        final String key = parts[0];
         if (! valueMap.containsKey(key))
         {
             throw new IllegalArgumentException(cts);
         }
         final ContentType ct = valueMap.get(key);
+        for (int i=1; i<parts.length; i++)
+        {
+            final String param = parts[i].trim();
+            if (param.regionMatches(true, 0, "charset=", 0, 8))
+            {
+                final String charset = param.substring(8).replace("\"", "").trim();
+                if (! charset.isEmpty() && ! charset.equalsIgnoreCase(ct.encoding))
+                {
+                    return new ContentType(ct.mediaType, charset);
+                }
+            }
+        }
         return ct;
     }
     
@@ -60,6 +77,8 @@ public class ContentType
     public static final ContentType APPLICATION_FORM_URLENCODED_TYPE = new ContentType(ContentType.APPLICATION_FORM_URLENCODED);
     public static final String APPLICATION_JSON = "application/json";
     public static final ContentType APPLICATION_JSON_TYPE = new ContentType(ContentType.APPLICATION_JSON);
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final ContentType APPLICATION_NDJSON_TYPE = new ContentType(ContentType.APPLICATION_NDJSON);
     public static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
     public static final ContentType APPLICATION_OCTET_STREAM_TYPE = new ContentType(ContentType.APPLICATION_OCTET_STREAM);
     public static final String APPLICATION_SVG_XML = "application/svg+xml";
@@ -85,6 +104,7 @@ public class ContentType
         m.put(APPLICATION_ATOM_XML, APPLICATION_ATOM_XML_TYPE);
         m.put(APPLICATION_FORM_URLENCODED, APPLICATION_FORM_URLENCODED_TYPE);
         m.put(APPLICATION_JSON, APPLICATION_JSON_TYPE);
+        m.put(APPLICATION_NDJSON, APPLICATION_NDJSON_TYPE);
         m.put(APPLICATION_OCTET_STREAM, APPLICATION_OCTET_STREAM_TYPE);
         m.put(APPLICATION_SVG_XML, APPLICATION_SVG_XML_TYPE);
         m.put(APPLICATION_XHTML_XML, APPLICATION_XHTML_XML_TYPE);
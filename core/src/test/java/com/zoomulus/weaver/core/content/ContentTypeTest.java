@@ -93,6 +93,16 @@ public class ContentTypeTest
         assertEquals(ContentType.TEXT_PLAIN_TYPE, ContentType.valueOf(ContentType.TEXT_PLAIN_TYPE.toString()));
     }
     
+    @Test
+    public void testValueOfWithCharset()
+    {
+        assertEquals(ContentType.TEXT_PLAIN_TYPE, ContentType.valueOf("text/plain; charset=utf-8"));
+        final ContentType latin1 = ContentType.valueOf("text/plain; charset=\"ISO-8859-1\"");
+        assertEquals("ISO-8859-1", latin1.getEncoding());
+        assertTrue(latin1.isCompatibleWith(ContentType.TEXT_PLAIN_TYPE));
+        assertEquals("ISO-8859-1", ContentType.valueOf("application/json;Charset=ISO-8859-1").getEncoding());
+    }
+    
     @Test
     public void testConstants()
     {
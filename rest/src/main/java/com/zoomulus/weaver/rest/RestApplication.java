@@ -0,0 +1,253 @@
+package com.zoomulus.weaver.rest;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.ws.rs.ext.ParamConverterProvider;
+
+import lombok.Getter;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.inject.Injector;
+import com.zoomulus.weaver.rest.content.ContentCodec;
+import com.zoomulus.weaver.rest.content.ContentCodec.ContentCodecBuilder;
+import com.zoomulus.weaver.rest.execution.ExecutionMode;
+import com.zoomulus.weaver.rest.execution.ExecutionStrategy;
+import com.zoomulus.weaver.rest.execution.WorkerPoolExecutionStrategy;
+import com.zoomulus.weaver.rest.resource.DefaultResourceScannerStrategy;
+import com.zoomulus.weaver.rest.resource.ParamConverters;
+import com.zoomulus.weaver.rest.resource.PathCaptures;
+import com.zoomulus.weaver.rest.resource.Resource;
+import com.zoomulus.weaver.rest.resource.ResourceIdentifier;
+import com.zoomulus.weaver.rest.resource.ResourceRouter;
+import com.zoomulus.weaver.rest.resource.ResourceScannerStrategy;
+import com.zoomulus.weaver.rest.resource.RouteCache;
+import com.zoomulus.weaver.rest.resource.RouteStatus;
+
+/**
+ * Immutable model of a connector's resources, built once and shared by every
+ * channel; a RestHandler only keeps state for the request in progress.
+ */
+public class RestApplication
+{
+    @Getter
+    private final Set<Class<?>> resourceClasses;
+    @Getter
+    private final Map<ResourceIdentifier, Resource> resources;
+    @Getter
+    private final ResourceRouter router;
+    @Getter
+    private final Optional<RouteCache> routeCache;
+    @Getter
+    private final ExecutionStrategy executionStrategy;
+    @Getter
+    private final ExecutionStrategy blockingExecutionStrategy;
+    private final boolean ownsBlockingExecutionStrategy;
+
+    private RestApplication(final Set<Class<?>> resourceClasses,
+            final Map<ResourceIdentifier, Resource> resources,
+            final Optional<Long> routeCacheSize,
+            final ExecutionStrategy executionStrategy,
+            final Optional<ExecutionStrategy> blockingExecutionStrategy)
+    {
+        this.resourceClasses = ImmutableSet.copyOf(resourceClasses);
+        this.resources = ImmutableMap.copyOf(resources);
+        this.router = ResourceRouter.create(this.resources);
+        this.routeCache = routeCacheSize.isPresent() ?
+                Optional.of(new RouteCache(router, routeCacheSize.get())) : Optional.empty();
+        this.executionStrategy = executionStrategy;
+        ownsBlockingExecutionStrategy = ! blockingExecutionStrategy.isPresent() &&
+                executionStrategy.isInline() && hasBlockingResources(this.resources);
+        this.blockingExecutionStrategy = blockingExecutionStrategy.isPresent() ? blockingExecutionStrategy.get() :
+            (ownsBlockingExecutionStrategy ? new WorkerPoolExecutionStrategy() : executionStrategy);
+        if (this.blockingExecutionStrategy.isInline() && hasStreamingResources(this.resources))
+        {
+            // The resource would wait on the event loop for body chunks only the event loop can deliver.
+            throw new IllegalStateException("Resources that stream their request body need a blocking execution strategy that isn't inline");
+        }
+    }
+
+    private static boolean hasStreamingResources(final Map<ResourceIdentifier, Resource> resources)
+    {
+        for (final Resource resource : resources.values())
+        {
+            if (resource.isStreaming()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Shuts down the worker pool the application created for blocking resources,
+     * if it did.  Strategies passed to the builder belong to the caller, and are
+     * left running.
+     */
+    public void shutdown()
+    {
+        if (ownsBlockingExecutionStrategy) blockingExecutionStrategy.shutdown();
+    }
+
+    private static boolean hasBlockingResources(final Map<ResourceIdentifier, Resource> resources)
+    {
+        for (final Resource resource : resources.values())
+        {
+            if (ExecutionMode.BLOCKING == resource.getExecutionMode() ||
+                    resource.isStreaming() ||
+                    resource.isStreamedResponse()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The strategy that runs a resource: @NonBlocking resources run inline,
+     * @Blocking ones on the blocking strategy and the rest on the default.
+     * Streaming resources wait for their body, so always count as blocking.
+     */
+    public ExecutionStrategy executionStrategyFor(final Resource resource)
+    {
+        if (resource.isStreaming()) return blockingExecutionStrategy;
+        final ExecutionMode mode = resource.getExecutionMode();
+        if (ExecutionMode.NON_BLOCKING == mode) return ExecutionStrategy.inline();
+        if (ExecutionMode.BLOCKING == mode) return blockingExecutionStrategy;
+        return executionStrategy;
+    }
+
+    public RouteStatus match(final HttpMethod method,
+            final String uri,
+            final int pathEnd,
+            final PathCaptures captures)
+    {
+        return routeCache.isPresent() ?
+                routeCache.get().match(method, uri, pathEnd, captures) :
+                router.match(method, uri, pathEnd, captures);
+    }
+
+    public static RestApplicationBuilder builder()
+    {
+        return new RestApplicationBuilder();
+    }
+
+    public static class RestApplicationBuilder
+    {
+        private Set<Class<?>> resourceClasses = ImmutableSet.of();
+        private Optional<ResourceScannerStrategy> scannerStrategy = Optional.empty();
+        private Optional<Injector> injector = Optional.empty();
+        private final List<ParamConverterProvider> paramConverterProviders = Lists.newArrayList();
+        private ExecutionStrategy executionStrategy = ExecutionStrategy.inline();
+        private Optional<ExecutionStrategy> blockingExecutionStrategy = Optional.empty();
+        private Optional<Long> routeCacheSize = Optional.empty();
+        private final ContentCodecBuilder codec = ContentCodec.builder();
+        private boolean codecConfigured = false;
+
+        public RestApplicationBuilder resourceClasses(final Set<Class<?>> resourceClasses)
+        {
+            this.resourceClasses = resourceClasses;
+            return this;
+        }
+
+        /**
+         * Scans resources in place of the default scanner.  The scanner creates
+         * resources itself, so it can't be combined with an injector, param
+         * converter providers or Jackson configuration.
+         */
+        public RestApplicationBuilder scannerStrategy(final ResourceScannerStrategy scannerStrategy)
+        {
+            this.scannerStrategy = Optional.of(scannerStrategy);
+            return this;
+        }
+
+        /**
+         * Resource instances are obtained from this Injector instead of being
+         * constructed directly.
+         */
+        public RestApplicationBuilder injector(final Injector injector)
+        {
+            this.injector = Optional.of(injector);
+            return this;
+        }
+
+        /**
+         * Consulted, in the order added, before the built-in conversions for
+         * path, matrix, query, form and header parameters.
+         */
+        public RestApplicationBuilder paramConverterProvider(final ParamConverterProvider provider)
+        {
+            this.paramConverterProviders.add(provider);
+            return this;
+        }
+
+        /**
+         * Registered with the JSON and XML mappers used for request and response
+         * bodies, e.g. Jackson's Afterburner.
+         */
+        public RestApplicationBuilder jacksonModule(final Module module)
+        {
+            codec.module(module);
+            codecConfigured = true;
+            return this;
+        }
+
+        /**
+         * Called once with each of the JSON and XML mappers, after any modules
+         * are registered.
+         */
+        public RestApplicationBuilder objectMapperConfigurer(final Consumer<ObjectMapper> configurer)
+        {
+            codec.configure(configurer);
+            codecConfigured = true;
+            return this;
+        }
+
+        /**
+         * Runs resources that are not annotated @Blocking or @NonBlocking.
+         * Defaults to running them inline on the event loop.  The caller shuts
+         * the strategy down when it is done with it.
+         */
+        public RestApplicationBuilder executionStrategy(final ExecutionStrategy executionStrategy)
+        {
+            this.executionStrategy = executionStrategy;
+            return this;
+        }
+
+        /**
+         * Runs @Blocking resources and writes streamed responses.  Defaults to the default strategy or, if that
+         * is inline, to a bounded worker pool, which {@link RestApplication#shutdown()}
+         * shuts down.  A strategy set here is the caller's to shut down.  It
+         * can't be inline if any resource streams its request body.
+         */
+        public RestApplicationBuilder blockingExecutionStrategy(final ExecutionStrategy executionStrategy)
+        {
+            this.blockingExecutionStrategy = Optional.of(executionStrategy);
+            return this;
+        }
+
+        public RestApplicationBuilder routeCacheSize(final long routeCacheSize)
+        {
+            this.routeCacheSize = Optional.of(routeCacheSize);
+            return this;
+        }
+
+        public RestApplication build()
+        {
+            if (scannerStrategy.isPresent() &&
+                    (injector.isPresent() || ! paramConverterProviders.isEmpty() || codecConfigured))
+            {
+                throw new IllegalStateException(
+                        "An injector, param converter providers or Jackson configuration can't be used with a custom scanner strategy");
+            }
+            final ResourceScannerStrategy strategy = scannerStrategy.isPresent() ?
+                    scannerStrategy.get() :
+                    new DefaultResourceScannerStrategy(injector, new ParamConverters(paramConverterProviders), codec.build());
+            return new RestApplication(resourceClasses, strategy.scan(resourceClasses), routeCacheSize,
+                    executionStrategy, blockingExecutionStrategy);
+        }
+    }
+}
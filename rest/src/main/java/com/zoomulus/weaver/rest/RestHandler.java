@@ -1,52 +1,82 @@
 package com.zoomulus.weaver.rest;
 
 import static io.netty.buffer.Unpooled.copiedBuffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
-import io.netty.util.CharsetUtil;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.ReferenceCountUtil;
 
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
-import javax.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.zoomulus.weaver.core.content.ContentType;
-import com.zoomulus.weaver.rest.resource.DefaultResourceScannerStrategy;
+import com.zoomulus.weaver.rest.content.RequestBody;
+import com.zoomulus.weaver.rest.content.RequestBodyStream;
+import com.zoomulus.weaver.rest.execution.ExecutionStrategy;
+import com.zoomulus.weaver.rest.resource.PathCaptures;
 import com.zoomulus.weaver.rest.resource.Resource;
-import com.zoomulus.weaver.rest.resource.ResourceIdentifier;
 import com.zoomulus.weaver.rest.resource.ResourcePath;
+import com.zoomulus.weaver.rest.resource.RouteStatus;
+import com.zoomulus.weaver.rest.response.ByteRanges;
+import com.zoomulus.weaver.rest.response.ByteRanges.ByteRange;
+import com.zoomulus.weaver.rest.response.ChunkedResponseBody;
+import com.zoomulus.weaver.rest.response.FileContent;
+import com.zoomulus.weaver.rest.response.RestResponse;
 
+@Slf4j
 public class RestHandler extends ChannelInboundHandlerAdapter
 {
     Optional<HttpRequest> request = Optional.empty();
     Optional<HttpHeaders> headers = Optional.empty();
     Map<String, List<String>> queryParams = Maps.newHashMap();
     
-    final Set<Class<?>> resourceClasses;
-    final Map<ResourceIdentifier, Resource> resources;
+    final RestApplication application;
+    final PathCaptures captures = new PathCaptures();
     
     Optional<Resource> handlingResource = Optional.empty();
     Optional<ResourcePath> handlingResourcePath = Optional.empty();
-    StringBuilder buffer = new StringBuilder();
+    CompositeByteBuf body = null;
+    Optional<RequestBodyStream> bodyStream = Optional.empty();
     
-    public RestHandler(final Set<Class<?>> resourceClasses)
+    boolean inFlight = false;
+    final Queue<Object> deferred = Queues.newArrayDeque();
+    
+    public RestHandler(final RestApplication application)
     {
-        this.resourceClasses = resourceClasses;
-        this.resources = new DefaultResourceScannerStrategy().scan(resourceClasses);
+        this.application = application;
     }
     
     protected boolean is100ContinueExpected()
@@ -73,29 +103,34 @@ public class RestHandler extends ChannelInboundHandlerAdapter
     {
         handlingResource = Optional.empty();
         handlingResourcePath = Optional.empty();
-        buffer = new StringBuilder();
+        body = null;
     }
     
-    protected Optional<Resource> parseResource(final HttpMethod method, final String requestPath)
+    /**
+     * Drops the request being read and any held back, releasing their buffers.
+     */
+    private void discard()
     {
-        Optional<Resource> resource = Optional.empty();
-        for (final Entry<ResourceIdentifier, Resource> entry : resources.entrySet())
+        if (null != body)
         {
-            Optional<ResourcePath> rp =
-                    ResourcePath
-                        .withPattern(entry.getKey().getPath())
-                        .parse(requestPath);
-            if (rp.isPresent())// && entry.getKey().getMethod() == method)
-            {
-                resource = Optional.of(entry.getValue());
-                if (entry.getKey().getMethod() == method)
-                {
-                    handlingResourcePath = rp;
-                    return resource;
-                }
-            }
+            body.release();
+        }
+        reset();
+        if (bodyStream.isPresent())
+        {
+            bodyStream.get().fail(new ClosedChannelException());
+            bodyStream = Optional.empty();
         }
-        return resource;
+        while (! deferred.isEmpty())
+        {
+            ReferenceCountUtil.release(deferred.poll());
+        }
+    }
+    
+    protected RouteStatus route(final HttpMethod method, final String uri)
+    {
+        final int queryStart = uri.indexOf('?');
+        return application.match(method, uri, -1 == queryStart ? uri.length() : queryStart, captures);
     }
     
     @Override
@@ -108,6 +143,18 @@ public class RestHandler extends ChannelInboundHandlerAdapter
     public void channelRead(ChannelHandlerContext ctx, Object msg)
             throws Exception
     {
+        if (bodyStream.isPresent() && msg instanceof HttpContent)
+        {
+            stream(ctx, (HttpContent) msg);
+            return;
+        }
+        
+        if (inFlight)
+        {
+            deferred.add(msg);
+            return;
+        }
+        
         if (msg instanceof HttpRequest)
         {
             HttpRequest request = (HttpRequest) msg;
@@ -135,44 +182,55 @@ public class RestHandler extends ChannelInboundHandlerAdapter
             }
             else
             {
-                handlingResource = parseResource(request.getMethod(), request.getUri().split("\\?")[0]);
+                final RouteStatus routeStatus = route(request.getMethod(), request.getUri());
                 FullHttpResponse fullRsp = null;
                 
-                if (handlingResource.isPresent() && handlingResource.get().getHttpMethod() != request.getMethod())
+                if (RouteStatus.NOT_FOUND == routeStatus)
                 {
                     fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
-                            HttpResponseStatus.METHOD_NOT_ALLOWED);
+                            HttpResponseStatus.NOT_FOUND);
                 }
-                else if (! handlingResource.isPresent() || ! handlingResourcePath.isPresent())
+                else if (RouteStatus.METHOD_NOT_ALLOWED == routeStatus)
                 {
                     fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
-                            HttpResponseStatus.NOT_FOUND);
+                            HttpResponseStatus.METHOD_NOT_ALLOWED);
+                    fullRsp.headers().set(HttpHeaders.Names.ALLOW, Joiner.on(", ").join(captures.getAllowedMethods()));
                 }
                 else
                 {
+                    handlingResource = Optional.of(captures.getResource());
+                    handlingResourcePath = Optional.of(captures.toResourcePath());
                     queryParams = new QueryStringDecoder(request.getUri()).parameters();
+                    if (handlingResource.get().isStreaming())
+                    {
+                        // Don't wait for the body; the resource reads it as it arrives.
+                        dispatch(ctx);
+                    }
                 }
                 
                 if (null != fullRsp)
                 {
-                    fullRsp.headers().set(HttpHeaders.Names.CONTENT_LENGTH, fullRsp.content().readableBytes());
-                    if (isHttpKeepaliveRequest())
-                    {
-                        fullRsp.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
-                    }
-                    
-                    ctx.writeAndFlush(fullRsp);
+                    write(ctx, fullRsp, isHttpKeepaliveRequest());
                     reset();
                 }
             }
         }
         else if (msg instanceof HttpContent)
         {
-            // extract payload
-            HttpContent httpContent = (HttpContent) msg;
-            if (httpContent.content().isReadable())
+            // Keep the payload as received; the body takes over the chunk's reference.
+            final ByteBuf content = ((HttpContent) msg).content();
+            if (handlingResource.isPresent() && content.isReadable())
             {
-               buffer.append(httpContent.content().toString(CharsetUtil.UTF_8));
+                if (null == body)
+                {
+                    body = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+                }
+                body.addComponent(content);
+                body.writerIndex(body.writerIndex() + content.readableBytes());
+            }
+            else
+            {
+                ReferenceCountUtil.release(msg);
             }
 
             if (msg instanceof LastHttpContent)
@@ -180,59 +238,526 @@ public class RestHandler extends ChannelInboundHandlerAdapter
                 // invoke the handler
                 if (handlingResource.isPresent() && handlingResourcePath.isPresent())
                 {
-                    FullHttpResponse fullRsp = null;
-                    
+                    dispatch(ctx);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Runs the matched resource with the strategy it asked for.  If that is not
+     * the event loop, or the resource answers asynchronously, the channel stops
+     * reading and holds back any requests already decoded until the response has
+     * been written, so responses stay in request order.  A streaming resource is
+     * run as soon as its headers arrive, and the channel keeps reading its body
+     * for as long as the resource keeps up.
+     */
+    private void dispatch(final ChannelHandlerContext ctx)
+    {
+        final Resource resource = handlingResource.get();
+        final ResourcePath resourcePath = handlingResourcePath.get();
+        final RequestBody body = null != this.body ? RequestBody.of(this.body) : RequestBody.empty();
+        final Optional<RequestBodyStream> stream = resource.isStreaming() ?
+                Optional.of(new RequestBodyStream(ctx.channel())) : Optional.empty();
+        final Optional<HttpHeaders> headers = this.headers;
+        final Map<String, List<String>> queryParams = this.queryParams;
+        final boolean keepAlive = isHttpKeepaliveRequest();
+        final HttpRequest request = this.request.get();
+        reset();
+        bodyStream = stream;
+        
+        final ExecutionStrategy strategy = application.executionStrategyFor(resource);
+        if (strategy.isInline() && ! resource.isAsync() && ! stream.isPresent())
+        {
+            final RestResponse rsp = invoke(resource, resourcePath, body, stream, headers, queryParams, ctx);
+            body.release();
+            respond(ctx, request, rsp, keepAlive);
+            return;
+        }
+        
+        inFlight = true;
+        if (! stream.isPresent())
+        {
+            ctx.channel().config().setAutoRead(false);
+        }
+        try
+        {
+            strategy.execute(() -> {
+                if (resource.isAsync())
+                {
+                    // Arguments are bound before invokeAsync returns, so the body is no longer needed.
+                    final CompletableFuture<Void> sent = new CompletableFuture<>();
+                    final CompletionStage<RestResponse> stage;
                     try
                     {
-                        Response rsp = handlingResource.get().invoke(buffer.toString(),
-                                handlingResourcePath.get(),
-                                this.headers,
-                                queryParams);
-                        if (null != rsp.getEntity())
-                        {
-                            final String entity = (rsp.getEntity() instanceof String ? (String) rsp.getEntity() : rsp.getEntity().toString());
-                            fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
-                                            HttpResponseStatus.valueOf(rsp.getStatus()),
-                                            copiedBuffer(entity.getBytes()));
-                            fullRsp.headers().set("Content-Type", (null != rsp.getMediaType() ? rsp.getMediaType().toString() : ContentType.TEXT_PLAIN));
-                        }
-                        else
-                        {
-                            fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
-                                    HttpResponseStatus.valueOf(rsp.getStatus()));
-                        }
+                        stage = resource.invokeAsync(body, stream, resourcePath, headers, queryParams,
+                                Optional.of(sent), ctx.executor(), ctx.alloc());
                     }
-                    catch (Exception e)
+                    catch (RuntimeException e)
                     {
-                        final StringBuilder sb =  new StringBuilder();
-                        for (final StackTraceElement ste : e.getStackTrace())
-                        {
-                            sb.append(ste.toString());
-                            sb.append("\n");
-                        }
-                        fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
-                                        HttpResponseStatus.INTERNAL_SERVER_ERROR,
-                                        copiedBuffer(sb.toString().getBytes()));
+                        body.release();
+                        stream.ifPresent(RequestBodyStream::close);
+                        complete(ctx, request, error(e), keepAlive, Optional.of(sent));
+                        return;
                     }
-                    
-                    fullRsp.headers().set(HttpHeaders.Names.CONTENT_LENGTH, fullRsp.content().readableBytes());
-                    if (isHttpKeepaliveRequest())
+                    body.release();
+                    stage.whenComplete((rsp, error) -> {
+                        stream.ifPresent(RequestBodyStream::close);
+                        complete(ctx, request, null != error ? error(error) : rsp, keepAlive, Optional.of(sent));
+                    });
+                }
+                else
+                {
+                    final RestResponse rsp = invoke(resource, resourcePath, body, stream, headers, queryParams, ctx);
+                    body.release();
+                    stream.ifPresent(RequestBodyStream::close);
+                    complete(ctx, request, rsp, keepAlive, Optional.empty());
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            body.release();
+            stream.ifPresent(RequestBodyStream::close);
+            respond(ctx, request, RestResponse.status(HttpResponseStatus.SERVICE_UNAVAILABLE), keepAlive);
+        }
+    }
+    
+    /**
+     * Hands a chunk of a streaming request's body to the resource reading it.
+     * Once the body is complete, requests that follow are held back as usual
+     * until the response is written.
+     */
+    private void stream(final ChannelHandlerContext ctx, final HttpContent chunk)
+    {
+        final RequestBodyStream stream = bodyStream.get();
+        stream.offer(chunk.content());
+        if (chunk instanceof LastHttpContent)
+        {
+            stream.finish();
+            bodyStream = Optional.empty();
+            if (inFlight)
+            {
+                ctx.channel().config().setAutoRead(false);
+            }
+        }
+    }
+    
+    private void complete(final ChannelHandlerContext ctx,
+            final HttpRequest request,
+            final RestResponse rsp,
+            final boolean keepAlive,
+            final Optional<CompletableFuture<Void>> sent)
+    {
+        if (ctx.executor().inEventLoop())
+        {
+            final ChannelFuture written = respond(ctx, request, rsp, keepAlive);
+            if (sent.isPresent())
+            {
+                written.addListener(future -> {
+                    if (future.isSuccess()) sent.get().complete(null);
+                    else sent.get().completeExceptionally(future.cause());
+                });
+            }
+        }
+        else
+        {
+            ctx.executor().execute(() -> complete(ctx, request, rsp, keepAlive, sent));
+        }
+    }
+    
+    /**
+     * Writes a response on the event loop, and once it is written lets the
+     * requests held back behind it through.  A response whose length is known
+     * is served in part when the request asks for a Range of it.  Returns the
+     * future of the response's last write.
+     */
+    private ChannelFuture respond(final ChannelHandlerContext ctx,
+            final HttpRequest request,
+            final RestResponse rsp,
+            final boolean keepAlive)
+    {
+        if (rsp.isStreamed())
+        {
+            return stream(ctx, request, rsp, keepAlive);
+        }
+        final Optional<ByteRanges> ranges = ranges(request, rsp);
+        if (rsp.getFile().isPresent())
+        {
+            return sendFile(ctx, rsp, ranges, keepAlive);
+        }
+        final ChannelFuture written = write(ctx, toFullHttpResponse(rsp, ranges, ctx.alloc()), keepAlive);
+        if (inFlight)
+        {
+            resume(ctx);
+        }
+        return written;
+    }
+    
+    /**
+     * The ranges a GET asks for of a complete response, unless its If-Range
+     * rules them out.
+     */
+    private static Optional<ByteRanges> ranges(final HttpRequest request, final RestResponse rsp)
+    {
+        final String range = request.headers().get(HttpHeaders.Names.RANGE);
+        if (null == range ||
+                ! HttpMethod.GET.equals(request.getMethod()) ||
+                ! HttpResponseStatus.OK.equals(rsp.getStatus()) ||
+                ! ByteRanges.ifRangeMatches(Optional.ofNullable(request.headers().get(HttpHeaders.Names.IF_RANGE)),
+                        Optional.ofNullable(rsp.getHeaders().get(HttpHeaders.Names.LAST_MODIFIED))))
+        {
+            return Optional.empty();
+        }
+        return ByteRanges.parse(range,
+                rsp.getFile().isPresent() ? rsp.getFile().get().getCount() : rsp.getContent().readableBytes());
+    }
+    
+    /**
+     * Sends a streamed response with chunked transfer encoding.  Its output runs
+     * on the blocking strategy and ChunkedWriteHandler sends what it writes as
+     * the client takes it; the channel reads no further requests until the body
+     * is complete.  If the blocking strategy is inline the output is run here
+     * and buffered whole, since the event loop can't wait for itself to drain it.
+     */
+    private ChannelFuture stream(final ChannelHandlerContext ctx,
+            final HttpRequest request,
+            final RestResponse rsp,
+            final boolean keepAlive)
+    {
+        inFlight = true;
+        ctx.channel().config().setAutoRead(false);
+        
+        final ChunkedWriteHandler chunker = ctx.pipeline().get(ChunkedWriteHandler.class);
+        final ExecutionStrategy strategy = application.getBlockingExecutionStrategy();
+        final ChunkedResponseBody content = strategy.isInline() ?
+                new ChunkedResponseBody(ctx.alloc(), () -> { },
+                        ChunkedResponseBody.DEFAULT_CHUNK_SIZE, Integer.MAX_VALUE) :
+                new ChunkedResponseBody(ctx.alloc(), chunker::resumeTransfer);
+        try
+        {
+            strategy.execute(() -> content.writeFrom(rsp.getOutput().get()));
+        }
+        catch (RejectedExecutionException e)
+        {
+            content.close();
+            return respond(ctx, request, RestResponse.status(HttpResponseStatus.SERVICE_UNAVAILABLE), keepAlive);
+        }
+        
+        final HttpResponse head = new DefaultHttpResponse(HttpVersion.HTTP_1_1, rsp.getStatus());
+        setHeaders(head, rsp);
+        HttpHeaders.setTransferEncodingChunked(head);
+        if (keepAlive)
+        {
+            head.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        }
+        ctx.write(head);
+        return ctx.writeAndFlush(content).addListener((ChannelFuture future) -> {
+            content.close();
+            if (future.isSuccess())
+            {
+                resume(ctx);
+            }
+            else
+            {
+                // The head has gone out, so all the client can be told is that the body is cut short.
+                ctx.close();
+            }
+        });
+    }
+    
+    private void resume(final ChannelHandlerContext ctx)
+    {
+        inFlight = false;
+        try
+        {
+            while (! inFlight && ! deferred.isEmpty())
+            {
+                channelRead(ctx, deferred.poll());
+            }
+        }
+        catch (Exception e)
+        {
+            ctx.fireExceptionCaught(e);
+        }
+        if (! inFlight)
+        {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+    
+    /**
+     * Sends a file response with its length, as FileRegions so the kernel copies
+     * it to the socket without it passing through the heap.  TLS has to see the
+     * bytes, so over an SslHandler the file is read through HttpChunkedInput
+     * instead.  Ranges are regions of the same file, and the file is closed once
+     * the last of them is sent.
+     */
+    private ChannelFuture sendFile(final ChannelHandlerContext ctx,
+            final RestResponse rsp,
+            final Optional<ByteRanges> ranges,
+            final boolean keepAlive)
+    {
+        final FileContent file = rsp.getFile().get();
+        if (ranges.isPresent() && ! ranges.get().isSatisfiable())
+        {
+            file.close();
+            final ChannelFuture written = write(ctx, unsatisfiable(ranges.get()), keepAlive);
+            if (inFlight) resume(ctx);
+            return written;
+        }
+        
+        final HttpResponse head = new DefaultHttpResponse(HttpVersion.HTTP_1_1,
+                ranges.isPresent() ? HttpResponseStatus.PARTIAL_CONTENT : rsp.getStatus());
+        setHeaders(head, rsp);
+        head.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
+        final List<Object> parts = Lists.newArrayList();
+        if (! ranges.isPresent())
+        {
+            parts.add(file);
+        }
+        else if (! ranges.get().isMultipart())
+        {
+            final ByteRange range = ranges.get().getRanges().get(0);
+            head.headers().set(HttpHeaders.Names.CONTENT_RANGE, ranges.get().contentRange(range));
+            parts.add(file.slice(range.getStart(), range.getLength()));
+        }
+        else
+        {
+            head.headers().set(HttpHeaders.Names.CONTENT_TYPE, ranges.get().multipartContentType());
+            for (final ByteRange range : ranges.get().getRanges())
+            {
+                parts.add(ranges.get().partHeader(ctx.alloc(), rsp.getContentType(), range));
+                parts.add(file.slice(range.getStart(), range.getLength()));
+            }
+            parts.add(ranges.get().closingBoundary(ctx.alloc()));
+        }
+        long length = 0;
+        for (final Object part : parts)
+        {
+            length += part instanceof ByteBuf ? ((ByteBuf) part).readableBytes() : ((FileContent) part).getCount();
+        }
+        HttpHeaders.setContentLength(head, length);
+        if (keepAlive)
+        {
+            head.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        }
+        
+        inFlight = true;
+        ctx.channel().config().setAutoRead(false);
+        ctx.write(head);
+        final boolean ssl = null != ctx.pipeline().get(SslHandler.class);
+        final ChannelFuture sent;
+        if (ssl && 1 == parts.size())
+        {
+            // A single part goes through HttpChunkedInput, which ends the body itself.
+            try
+            {
+                sent = ctx.writeAndFlush(new HttpChunkedInput(chunkedFile((FileContent) parts.get(0))));
+            }
+            catch (IOException e)
+            {
+                file.close();
+                ctx.close();
+                return ctx.newFailedFuture(e);
+            }
+        }
+        else
+        {
+            // The parts of a multipart body can't each end it, so they go through as they are.
+            for (int i = 0; i < parts.size(); i++)
+            {
+                final Object part = parts.get(i);
+                try
+                {
+                    ctx.write(part instanceof ByteBuf ? part :
+                        (ssl ? chunkedFile((FileContent) part) : fileRegion((FileContent) part)));
+                }
+                catch (IOException e)
+                {
+                    // What was written is released as the channel closes; the rest is released here.
+                    for (final Object unwritten : parts.subList(i, parts.size()))
                     {
-                        fullRsp.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+                        ReferenceCountUtil.release(unwritten);
                     }
-                    
-                    ctx.writeAndFlush(fullRsp);
-                    reset();
+                    file.close();
+                    ctx.close();
+                    return ctx.newFailedFuture(e);
                 }
             }
+            sent = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        }
+        return sent.addListener((ChannelFuture future) -> {
+            file.close();
+            if (future.isSuccess())
+            {
+                resume(ctx);
+            }
+            else
+            {
+                ctx.close();
+            }
+        });
+    }
+    
+    /**
+     * A region of a file that leaves the file open when it has been sent.
+     */
+    private static DefaultFileRegion fileRegion(final FileContent file)
+    {
+        return new DefaultFileRegion(file.getChannel(), file.getPosition(), file.getCount()) {
+            @Override
+            protected void deallocate() { }
+        };
+    }
+    
+    /**
+     * As fileRegion(), read in chunks for TLS.
+     */
+    private static ChunkedNioFile chunkedFile(final FileContent file) throws IOException
+    {
+        return new ChunkedNioFile(file.getChannel(), file.getPosition(), file.getCount(),
+                ChunkedResponseBody.DEFAULT_CHUNK_SIZE) {
+            @Override
+            public void close() { }
+        };
+    }
+    
+    private static RestResponse invoke(final Resource resource,
+            final ResourcePath resourcePath,
+            final RequestBody body,
+            final Optional<RequestBodyStream> stream,
+            final Optional<HttpHeaders> headers,
+            final Map<String, List<String>> queryParams,
+            final ChannelHandlerContext ctx)
+    {
+        try
+        {
+            return resource.invoke(body, stream, resourcePath, headers, queryParams, Optional.of(ctx.executor()), ctx.alloc());
+        }
+        catch (Exception e)
+        {
+            return error(e);
+        }
+    }
+    
+    /**
+     * Ranges of a response's content are slices of it, not copies; the parts of
+     * a multipart/byteranges body are put together in a composite buffer.
+     */
+    private static FullHttpResponse toFullHttpResponse(final RestResponse rsp,
+            final Optional<ByteRanges> ranges,
+            final ByteBufAllocator alloc)
+    {
+        if (! ranges.isPresent())
+        {
+            final FullHttpResponse fullRsp = toFullHttpResponse(rsp);
+            if (HttpResponseStatus.OK.equals(rsp.getStatus()))
+            {
+                fullRsp.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
+            }
+            return fullRsp;
+        }
+        else if (! ranges.get().isSatisfiable())
+        {
+            rsp.release();
+            return unsatisfiable(ranges.get());
+        }
+        
+        final ByteBuf content = rsp.getContent();
+        final FullHttpResponse fullRsp;
+        if (! ranges.get().isMultipart())
+        {
+            final ByteRange range = ranges.get().getRanges().get(0);
+            fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.PARTIAL_CONTENT,
+                    content.slice(content.readerIndex() + (int) range.getStart(), (int) range.getLength()));
+            setHeaders(fullRsp, rsp);
+            fullRsp.headers().set(HttpHeaders.Names.CONTENT_RANGE, ranges.get().contentRange(range));
+        }
+        else
+        {
+            final CompositeByteBuf parts = alloc.compositeBuffer(Integer.MAX_VALUE);
+            for (final ByteRange range : ranges.get().getRanges())
+            {
+                parts.addComponent(ranges.get().partHeader(alloc, rsp.getContentType(), range));
+                parts.addComponent(content.slice(content.readerIndex() + (int) range.getStart(), (int) range.getLength()).retain());
+            }
+            parts.addComponent(ranges.get().closingBoundary(alloc));
+            parts.writerIndex(parts.capacity());
+            content.release();
+            fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.PARTIAL_CONTENT, parts);
+            setHeaders(fullRsp, rsp);
+            fullRsp.headers().set(HttpHeaders.Names.CONTENT_TYPE, ranges.get().multipartContentType());
+        }
+        fullRsp.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
+        return fullRsp;
+    }
+    
+    private static FullHttpResponse unsatisfiable(final ByteRanges ranges)
+    {
+        final FullHttpResponse fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        fullRsp.headers().set(HttpHeaders.Names.CONTENT_RANGE, ranges.unsatisfiedContentRange());
+        return fullRsp;
+    }
+    
+    private static FullHttpResponse toFullHttpResponse(final RestResponse rsp)
+    {
+        final FullHttpResponse fullRsp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, rsp.getStatus(), rsp.getContent());
+        setHeaders(fullRsp, rsp);
+        return fullRsp;
+    }
+    
+    private static void setHeaders(final HttpResponse httpRsp, final RestResponse rsp)
+    {
+        if (rsp.getContentType().isPresent())
+        {
+            httpRsp.headers().set(HttpHeaders.Names.CONTENT_TYPE, rsp.getContentType().get());
+        }
+        for (final Map.Entry<String, String> header : rsp.getHeaders().entrySet())
+        {
+            httpRsp.headers().set(header.getKey(), header.getValue());
+        }
+    }
+    
+    private static RestResponse error(final Throwable e)
+    {
+        final StringBuilder sb =  new StringBuilder();
+        for (final StackTraceElement ste : e.getStackTrace())
+        {
+            sb.append(ste.toString());
+            sb.append("\n");
+        }
+        return RestResponse.of(HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                ContentType.TEXT_PLAIN_TYPE,
+                copiedBuffer(sb.toString().getBytes()));
+    }
+    
+    private static ChannelFuture write(final ChannelHandlerContext ctx, final FullHttpResponse fullRsp, final boolean keepAlive)
+    {
+        fullRsp.headers().set(HttpHeaders.Names.CONTENT_LENGTH, fullRsp.content().readableBytes());
+        if (keepAlive)
+        {
+            fullRsp.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
         }
+        return ctx.writeAndFlush(fullRsp);
+    }
+
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) throws Exception
+    {
+        discard();
+        super.channelInactive(ctx);
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
             throws Exception
     {
-        // TODO Auto-generated method stub
-
+        // A connection the client dropped isn't worth more than a debug line.
+        if (cause instanceof IOException) log.debug("Closing connection after I/O error", cause);
+        else log.warn("Closing connection after unexpected error", cause);
+        discard();
+        ctx.close();
     }
 }
@@ -70,5 +70,10 @@ public class RestServer
             }
             catch (InterruptedException e) { }
         }
+        
+        for (final ServerConnector connector : connectors)
+        {
+            connector.shutdown();
+        }
     }
 }
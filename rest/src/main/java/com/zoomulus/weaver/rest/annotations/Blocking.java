@@ -0,0 +1,17 @@
+package com.zoomulus.weaver.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The resource method may block, so it is run by the connector's blocking
+ * execution strategy instead of on the channel's event loop.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Blocking
+{
+
+}
@@ -0,0 +1,19 @@
+package com.zoomulus.weaver.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The resource method's body parameter is parsed while the body is still
+ * arriving, instead of after the whole body has been received and buffered.
+ * Like any streaming resource, the method is run by the connector's blocking
+ * execution strategy.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Incremental
+{
+
+}
@@ -0,0 +1,17 @@
+package com.zoomulus.weaver.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The resource method never blocks and is always run on the channel's event
+ * loop, whatever the connector's default execution strategy.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NonBlocking
+{
+
+}
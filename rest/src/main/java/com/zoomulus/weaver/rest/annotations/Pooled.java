@@ -0,0 +1,18 @@
+package com.zoomulus.weaver.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Resource instances are reused from a small pool kept for each event loop,
+ * whichever thread the request runs on, instead of being created for every
+ * request.  The size, at least 1, bounds each pool.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Pooled
+{
+    int size() default 8;
+}
@@ -1,35 +1,46 @@
 package com.zoomulus.weaver.rest.connector;
 
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
 
 import java.io.IOException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import javax.ws.rs.Path;
+import javax.ws.rs.ext.ParamConverterProvider;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.ClassPath;
+import com.google.inject.Injector;
 import com.zoomulus.weaver.core.connector.ServerConnector;
+import com.zoomulus.weaver.rest.RestApplication;
+import com.zoomulus.weaver.rest.RestApplication.RestApplicationBuilder;
 import com.zoomulus.weaver.rest.RestHandler;
+import com.zoomulus.weaver.rest.execution.ExecutionStrategy;
 
 @Slf4j
 public class RestServerConnector implements ServerConnector
 {
     @Getter
     final int port;
-    final Set<Class<?>> resources;
+    @Getter
+    final RestApplication application;
     
-    private RestServerConnector(final Optional<Integer> port, final Set<Class<?>> resources)
+    private RestServerConnector(final Optional<Integer> port, final RestApplication application)
     {
         this.port = port.isPresent() ? port.get() : getDefaultPort();
-        this.resources = resources;
+        this.application = application;
     }
     
     @Override
@@ -45,14 +56,24 @@ public class RestServerConnector implements ServerConnector
             @Override
             protected void initChannel(final SocketChannel ch) throws Exception
             {
+                // Request bodies and serialized responses live in these buffers.
+                ch.config().setAllocator(PooledByteBufAllocator.DEFAULT);
                 ch.pipeline().addLast(new HttpRequestDecoder());
                 //ch.pipeline().addLast(new HttpObjectAggregator(1048576));
                 ch.pipeline().addLast(new HttpResponseEncoder());
-                ch.pipeline().addLast(new RestHandler(resources));
+                // Streamed response bodies are written as the channel can take them.
+                ch.pipeline().addLast(new ChunkedWriteHandler());
+                ch.pipeline().addLast(new RestHandler(application));
             }            
         };
     }
     
+    @Override
+    public void shutdown()
+    {
+        application.shutdown();
+    }
+    
     public static RestServerConnectorBuilder builder()
     {
         return new RestServerConnectorBuilder();
@@ -62,6 +83,7 @@ public class RestServerConnector implements ServerConnector
     {
         private Optional<Integer> port = Optional.empty();
         private Set<Class<?>> resources = Sets.newConcurrentHashSet();
+        private final RestApplicationBuilder application = RestApplication.builder();
         
         public RestServerConnectorBuilder withPort(int port)
         {
@@ -108,13 +130,61 @@ public class RestServerConnector implements ServerConnector
             return this;
         }
         
+        public RestServerConnectorBuilder withRouteCache(final long maximumSize)
+        {
+            application.routeCacheSize(maximumSize);
+            return this;
+        }
+        
+        public RestServerConnectorBuilder withInjector(final Injector injector)
+        {
+            application.injector(injector);
+            return this;
+        }
+        
+        public RestServerConnectorBuilder withParamConverterProvider(final ParamConverterProvider provider)
+        {
+            application.paramConverterProvider(provider);
+            return this;
+        }
+        
+        public RestServerConnectorBuilder withJacksonModule(final Module module)
+        {
+            application.jacksonModule(module);
+            return this;
+        }
+        
+        public RestServerConnectorBuilder withObjectMapper(final Consumer<ObjectMapper> configurer)
+        {
+            application.objectMapperConfigurer(configurer);
+            return this;
+        }
+        
+        /**
+         * The strategy remains the caller's; shutting down the connector leaves it running.
+         */
+        public RestServerConnectorBuilder withExecutionStrategy(final ExecutionStrategy executionStrategy)
+        {
+            application.executionStrategy(executionStrategy);
+            return this;
+        }
+        
+        /**
+         * As withExecutionStrategy(), the strategy remains the caller's.
+         */
+        public RestServerConnectorBuilder withBlockingExecutionStrategy(final ExecutionStrategy executionStrategy)
+        {
+            application.blockingExecutionStrategy(executionStrategy);
+            return this;
+        }
+        
         public RestServerConnector build()
         {
             if (resources.isEmpty())
             {
                 throw new RuntimeException("Could not find any valid resource classes");
             }
-            return new RestServerConnector(port, resources);
+            return new RestServerConnector(port, application.resourceClasses(resources).build());
         }
         
         private void addResourceIfJaxRS(final Class<?> resourceClass)
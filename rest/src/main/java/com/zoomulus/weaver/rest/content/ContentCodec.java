@@ -0,0 +1,127 @@
+package com.zoomulus.weaver.rest.content;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The JSON and XML mappers used to read request bodies and write responses,
+ * configured once per application.  Readers and writers are cached per type:
+ * for parameters they are created when the resource is scanned, for responses
+ * on the first response of each class.
+ *
+ * Modules, such as Jackson's Afterburner, and any other mapper configuration
+ * are applied to both mappers when the codec is built.
+ */
+public class ContentCodec
+{
+    private static final ContentCodec DEFAULTS = builder().build();
+
+    @Getter
+    private final ObjectMapper jsonMapper;
+    @Getter
+    private final ObjectMapper xmlMapper;
+
+    private final Map<Class<?>, ObjectReader> jsonReaders = Maps.newConcurrentMap();
+    private final Map<Class<?>, ObjectReader> xmlReaders = Maps.newConcurrentMap();
+    private final Map<Class<?>, ObjectWriter> jsonWriters = Maps.newConcurrentMap();
+    private final Map<Class<?>, ObjectWriter> xmlWriters = Maps.newConcurrentMap();
+
+    private ContentCodec(final List<Module> modules, final List<Consumer<ObjectMapper>> configurers)
+    {
+        jsonMapper = configure(new ObjectMapper(), modules, configurers);
+        xmlMapper = configure(new XmlMapper(), modules, configurers);
+    }
+
+    private static ObjectMapper configure(final ObjectMapper mapper,
+            final List<Module> modules,
+            final List<Consumer<ObjectMapper>> configurers)
+    {
+        mapper.registerModules(modules);
+        for (final Consumer<ObjectMapper> configurer : configurers)
+        {
+            configurer.accept(mapper);
+        }
+        return mapper;
+    }
+
+    public static ContentCodec defaults()
+    {
+        return DEFAULTS;
+    }
+
+    public ObjectReader jsonReader(final Class<?> type)
+    {
+        return jsonReaders.computeIfAbsent(type, reader(jsonMapper));
+    }
+
+    public ObjectReader xmlReader(final Class<?> type)
+    {
+        return xmlReaders.computeIfAbsent(type, reader(xmlMapper));
+    }
+
+    public ObjectWriter jsonWriter(final Class<?> type)
+    {
+        return jsonWriters.computeIfAbsent(type, writer(jsonMapper));
+    }
+
+    public ObjectWriter xmlWriter(final Class<?> type)
+    {
+        return xmlWriters.computeIfAbsent(type, writer(xmlMapper));
+    }
+
+    private static Function<Class<?>, ObjectReader> reader(final ObjectMapper mapper)
+    {
+        return mapper::reader;
+    }
+
+    private static Function<Class<?>, ObjectWriter> writer(final ObjectMapper mapper)
+    {
+        return mapper::writerFor;
+    }
+
+    public static ContentCodecBuilder builder()
+    {
+        return new ContentCodecBuilder();
+    }
+
+    public static class ContentCodecBuilder
+    {
+        private final List<Module> modules = Lists.newArrayList();
+        private final List<Consumer<ObjectMapper>> configurers = Lists.newArrayList();
+
+        public ContentCodecBuilder module(@NonNull final Module module)
+        {
+            modules.add(module);
+            return this;
+        }
+
+        /**
+         * Called with the JSON mapper and with the XML mapper, after modules
+         * are registered.
+         */
+        public ContentCodecBuilder configure(@NonNull final Consumer<ObjectMapper> configurer)
+        {
+            configurers.add(configurer);
+            return this;
+        }
+
+        public ContentCodec build()
+        {
+            return new ContentCodec(ImmutableList.copyOf(modules), ImmutableList.copyOf(configurers));
+        }
+    }
+}
@@ -4,66 +4,119 @@ import io.netty.util.CharsetUtil;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Optional;
 
 import lombok.Getter;
 
-import com.google.common.base.Strings;
 import com.zoomulus.weaver.core.content.Content;
 import com.zoomulus.weaver.core.content.ContentType;
 import com.zoomulus.weaver.rest.contenttype.ContentTypeResolverStrategy;
 import com.zoomulus.weaver.rest.contenttype.IntelligentContentTypeResolverStrategy;
 
+/**
+ * A request body together with the content type it was resolved to.  The body
+ * is decoded with the content type's charset, and only when {@link #getContent()}
+ * is first called.  Only form-urlencoded bodies are percent-decoded.
+ */
 public class HttpContent implements Content
 {
+    private static final ContentTypeResolverStrategy RESOLVER = new IntelligentContentTypeResolverStrategy();
+    
     @Getter
     private final ContentType contentType;
     @Getter
-    private final String content;
+    private final RequestBody body;
+    @Getter
+    private final Charset charset;
+    private String content = null;
     
     public static Optional<HttpContent> create(final String messageBody,
             final List<ContentType> messageContentTypes,
             final List<ContentType> acceptedContentTypes)
     {
-        if (Strings.isNullOrEmpty(messageBody))
+        return create(RequestBody.of(messageBody), messageContentTypes, acceptedContentTypes);
+    }
+    
+    public static Optional<HttpContent> create(final RequestBody body,
+            final List<ContentType> messageContentTypes,
+            final List<ContentType> acceptedContentTypes)
+    {
+        if (body.isEmpty())
         {
             return Optional.empty();
         }
         
-        final ContentTypeResolverStrategy resolver = new IntelligentContentTypeResolverStrategy();
-        final Optional<ContentType> contentType = resolver.resolve(messageContentTypes, acceptedContentTypes);
+        final Optional<ContentType> contentType = RESOLVER.resolve(messageContentTypes, acceptedContentTypes);
         if (contentType.isPresent())
         {
-            String decodedBody = messageBody;
-            try
-            {
-                decodedBody = URLDecoder.decode(messageBody, contentType.get().getEncoding());
-            }
-            catch (UnsupportedEncodingException e)
-            {
-                try
-                {
-                    decodedBody = URLDecoder.decode(messageBody, CharsetUtil.UTF_8.name());
-                }
-                catch (UnsupportedEncodingException e2) { }
-            }
-
-            return Optional.of(new HttpContent(contentType.get(), decodedBody));
+            return Optional.of(new HttpContent(contentType.get(), body));
         }
         
         return Optional.empty();
     }
     
-    private HttpContent(final ContentType contentType, final String content)
+    private HttpContent(final ContentType contentType, final RequestBody body)
     {
         this.contentType = contentType;
-        this.content = content;
+        this.body = body;
+        this.charset = charsetOf(contentType);
+    }
+    
+    private static Charset charsetOf(final ContentType contentType)
+    {
+        try
+        {
+            return Charset.forName(contentType.getEncoding());
+        }
+        catch (IllegalArgumentException e)
+        {
+            return CharsetUtil.UTF_8;
+        }
+    }
+    
+    public boolean isFormUrlEncoded()
+    {
+        return contentType.isCompatibleWith(ContentType.APPLICATION_FORM_URLENCODED_TYPE);
+    }
+    
+    /**
+     * The body text before any percent-decoding.
+     */
+    public String getRawContent()
+    {
+        return body.asString(charset);
+    }
+    
+    @Override
+    public String getContent()
+    {
+        if (null == content)
+        {
+            content = isFormUrlEncoded() ? decode(getRawContent(), charset) : getRawContent();
+        }
+        return content;
+    }
+    
+    private static String decode(final String messageBody, final Charset charset)
+    {
+        try
+        {
+            return URLDecoder.decode(messageBody, charset.name());
+        }
+        catch (UnsupportedEncodingException | IllegalArgumentException e)
+        {
+            return messageBody;
+        }
     }
 
+    /**
+     * The body bytes exactly as received.
+     */
     @Override
     public byte[] getContentBytes()
     {
-        return content.getBytes();
+        return body.asBytes();
     }
 }
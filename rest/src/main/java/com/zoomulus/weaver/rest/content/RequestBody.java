@@ -0,0 +1,115 @@
+package com.zoomulus.weaver.rest.content;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import lombok.NonNull;
+
+/**
+ * The bytes of a request body, as received.  Nothing is copied or decoded until
+ * a caller asks for the String or byte[] form, and each form is produced at most
+ * once.  The body owns its buffer; whoever created it releases it.
+ */
+public class RequestBody
+{
+    private static final RequestBody EMPTY = new RequestBody(Unpooled.EMPTY_BUFFER);
+
+    private final ByteBuf content;
+    private String string = null;
+    private byte[] bytes = null;
+
+    private RequestBody(final ByteBuf content)
+    {
+        this.content = content;
+    }
+
+    /**
+     * Wraps a buffer without copying it.  The body takes over the caller's
+     * reference.
+     */
+    public static RequestBody of(@NonNull final ByteBuf content)
+    {
+        return new RequestBody(content);
+    }
+
+    public static RequestBody of(final String content)
+    {
+        if (null == content || content.isEmpty()) return EMPTY;
+        final RequestBody body = new RequestBody(Unpooled.wrappedBuffer(content.getBytes(CharsetUtil.UTF_8)));
+        body.string = content;
+        return body;
+    }
+
+    public static RequestBody empty()
+    {
+        return EMPTY;
+    }
+
+    public boolean isEmpty()
+    {
+        return ! content.isReadable();
+    }
+
+    public int length()
+    {
+        return content.readableBytes();
+    }
+
+    /**
+     * The body as UTF-8 text.
+     */
+    public String asString()
+    {
+        if (null == string)
+        {
+            string = content.toString(CharsetUtil.UTF_8);
+        }
+        return string;
+    }
+
+    public String asString(@NonNull final Charset charset)
+    {
+        return CharsetUtil.UTF_8.equals(charset) ? asString() : content.toString(charset);
+    }
+
+    public byte[] asBytes()
+    {
+        if (null == bytes)
+        {
+            bytes = new byte[content.readableBytes()];
+            content.getBytes(content.readerIndex(), bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * A read-only view of the body bytes.  The view shares the body's buffer and
+     * is only valid until the body is released.
+     */
+    public ByteBuf content()
+    {
+        return Unpooled.unmodifiableBuffer(content);
+    }
+
+    /**
+     * Reads the body bytes in place, without copying or decoding them first.
+     * Like {@link #content()}, only valid until the body is released.
+     */
+    public InputStream openStream()
+    {
+        return new ByteBufInputStream(content.duplicate());
+    }
+
+    public void release()
+    {
+        if (content.refCnt() > 0)
+        {
+            content.release();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.zoomulus.weaver.rest.content;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.NonNull;
+
+import com.google.common.collect.Queues;
+
+/**
+ * A request body read while it is still arriving.  The channel's event loop
+ * adds chunks as they are decoded and a resource reads them on a worker thread,
+ * blocking until more arrive.  Once capacity chunks are waiting the channel
+ * stops reading from the socket, and starts again when the reader has caught up
+ * by half, so a request holds about capacity chunks however large its body.
+ *
+ * Closing the stream before the end of the body drops what is queued and what
+ * is still to come.
+ */
+public class RequestBodyStream extends InputStream implements ReadableByteChannel
+{
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final Channel channel;
+    private final int capacity;
+    private final Queue<ByteBuf> chunks = Queues.newArrayDeque();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private boolean finished = false;
+    private boolean closed = false;
+    private boolean paused = false;
+    private Throwable failure = null;
+
+    public RequestBodyStream(@NonNull final Channel channel)
+    {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    public RequestBodyStream(@NonNull final Channel channel, final int capacity)
+    {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        this.channel = channel;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Called on the event loop with each chunk of the body; the stream takes over
+     * the chunk's reference.
+     */
+    public void offer(@NonNull final ByteBuf chunk)
+    {
+        lock.lock();
+        try
+        {
+            if (closed || finished || ! chunk.isReadable())
+            {
+                chunk.release();
+                return;
+            }
+            chunks.add(chunk);
+            if (! paused && chunks.size() >= capacity)
+            {
+                paused = true;
+                channel.config().setAutoRead(false);
+            }
+            changed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called on the event loop once the last chunk has been offered.  From here on
+     * the stream no longer touches the channel's autoRead.
+     */
+    public void finish()
+    {
+        lock.lock();
+        try
+        {
+            finished = true;
+            changed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the body abnormally, e.g. because the connection closed.  Readers get an
+     * IOException.
+     */
+    public void fail(@NonNull final Throwable cause)
+    {
+        lock.lock();
+        try
+        {
+            failure = cause;
+            finished = true;
+            drop();
+            changed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        final byte[] b = new byte[1];
+        return -1 == read(b, 0, 1) ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (0 == len) return 0;
+        lock.lock();
+        try
+        {
+            final ByteBuf chunk = await();
+            if (null == chunk) return -1;
+            final int n = Math.min(len, chunk.readableBytes());
+            chunk.readBytes(b, off, n);
+            consumed(chunk);
+            return n;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException
+    {
+        if (! dst.hasRemaining()) return 0;
+        lock.lock();
+        try
+        {
+            final ByteBuf chunk = await();
+            if (null == chunk) return -1;
+            final int n = Math.min(dst.remaining(), chunk.readableBytes());
+            final int limit = dst.limit();
+            dst.limit(dst.position() + n);
+            chunk.readBytes(dst);
+            dst.limit(limit);
+            consumed(chunk);
+            return n;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            return closed || chunks.isEmpty() ? 0 : chunks.peek().readableBytes();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        lock.lock();
+        try
+        {
+            return ! closed;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            if (closed) return;
+            closed = true;
+            drop();
+            // Let the rest of the body arrive, to be dropped.
+            if (paused) resumeReading();
+            changed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The chunk at the head of the queue, waiting for one if needed; null at the
+     * end of the body.
+     */
+    private ByteBuf await() throws IOException
+    {
+        try
+        {
+            while (! closed && chunks.isEmpty() && ! finished)
+            {
+                changed.await();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the request body", e);
+        }
+        if (closed) throw new ClosedChannelException();
+        if (null != failure) throw new IOException("Request body incomplete", failure);
+        return chunks.peek();
+    }
+
+    private void consumed(final ByteBuf chunk)
+    {
+        if (chunk.isReadable()) return;
+        chunks.poll().release();
+        if (paused && chunks.size() <= capacity / 2)
+        {
+            resumeReading();
+        }
+    }
+
+    private void resumeReading()
+    {
+        paused = false;
+        channel.eventLoop().execute(() -> {
+            lock.lock();
+            try
+            {
+                if (! paused && ! finished)
+                {
+                    channel.config().setAutoRead(true);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        });
+    }
+
+    private void drop()
+    {
+        while (! chunks.isEmpty())
+        {
+            chunks.poll().release();
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class IntelligentContentTypeResolverStrategy implements
                 if (pctIsText)
                 {
                     boolean hasJson = false;
+                    boolean hasNdjson = false;
                     boolean hasXml = false;
                     for (final ContentType ct : expectedContentTypes)
                     {
@@ -42,6 +43,10 @@ public class IntelligentContentTypeResolverStrategy implements
                             hasJson = true;
                             break;
                         }
+                        else if (ct.isCompatibleWith(ContentType.APPLICATION_NDJSON_TYPE))
+                        {
+                            hasNdjson = true; // don't break; we prefer json
+                        }
                         else if (ct.isCompatibleWith(ContentType.APPLICATION_XML_TYPE))
                         {
                             hasXml = true; // don't break; we prefer json
@@ -51,6 +56,10 @@ public class IntelligentContentTypeResolverStrategy implements
                     {
                         contentType = Optional.of(ContentType.APPLICATION_JSON_TYPE);
                     }
+                    else if (hasNdjson)
+                    {
+                        contentType = Optional.of(ContentType.APPLICATION_NDJSON_TYPE);
+                    }
                     else if (hasXml)
                     {
                         contentType = Optional.of(ContentType.APPLICATION_XML_TYPE);
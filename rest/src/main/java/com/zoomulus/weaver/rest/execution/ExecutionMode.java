@@ -0,0 +1,26 @@
+package com.zoomulus.weaver.rest.execution;
+
+import java.lang.reflect.Method;
+
+import com.zoomulus.weaver.rest.annotations.Blocking;
+import com.zoomulus.weaver.rest.annotations.NonBlocking;
+
+/**
+ * Where a resource method asked to be run, resolved at scan time.  An
+ * annotation on the method overrides one on its class.
+ */
+public enum ExecutionMode
+{
+    DEFAULT,
+    BLOCKING,
+    NON_BLOCKING;
+
+    public static ExecutionMode of(final Class<?> resourceClass, final Method method)
+    {
+        if (null != method.getAnnotation(NonBlocking.class)) return NON_BLOCKING;
+        if (null != method.getAnnotation(Blocking.class)) return BLOCKING;
+        if (null != resourceClass.getAnnotation(NonBlocking.class)) return NON_BLOCKING;
+        if (null != resourceClass.getAnnotation(Blocking.class)) return BLOCKING;
+        return DEFAULT;
+    }
+}
@@ -0,0 +1,45 @@
+package com.zoomulus.weaver.rest.execution;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs resource invocations.  A strategy that is saturated throws
+ * RejectedExecutionException, which the handler answers with a 503.  Whatever
+ * thread the invocation runs on, the response is written on the channel's
+ * event loop.
+ */
+public interface ExecutionStrategy extends Executor
+{
+    @Override
+    void execute(final Runnable task) throws RejectedExecutionException;
+
+    /**
+     * True if tasks run on the calling thread, i.e. on the event loop.
+     */
+    default boolean isInline()
+    {
+        return false;
+    }
+
+    default void shutdown() { }
+
+    static ExecutionStrategy inline()
+    {
+        return InlineExecutionStrategy.INSTANCE;
+    }
+
+    static ExecutionStrategy workerPool(final int threads, final int queueLength)
+    {
+        return new WorkerPoolExecutionStrategy(threads, queueLength);
+    }
+
+    /**
+     * One virtual thread per invocation.  Requires a JDK with virtual threads;
+     * see {@link VirtualThreadExecutionStrategy#isSupported()}.
+     */
+    static ExecutionStrategy virtualThreads()
+    {
+        return new VirtualThreadExecutionStrategy();
+    }
+}
@@ -0,0 +1,24 @@
+package com.zoomulus.weaver.rest.execution;
+
+/**
+ * Runs invocations directly on the event loop that read the request.  Cheapest
+ * for resources that never block, and the default.
+ */
+public final class InlineExecutionStrategy implements ExecutionStrategy
+{
+    static final InlineExecutionStrategy INSTANCE = new InlineExecutionStrategy();
+
+    private InlineExecutionStrategy() { }
+
+    @Override
+    public void execute(final Runnable task)
+    {
+        task.run();
+    }
+
+    @Override
+    public boolean isInline()
+    {
+        return true;
+    }
+}
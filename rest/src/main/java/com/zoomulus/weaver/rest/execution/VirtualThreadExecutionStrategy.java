@@ -0,0 +1,68 @@
+package com.zoomulus.weaver.rest.execution;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Starts a virtual thread for each invocation.  Weaver is built for Java 8, so
+ * Executors.newVirtualThreadPerTaskExecutor() is looked up when the class is
+ * loaded; on a JDK without it, constructing this strategy fails.
+ */
+public class VirtualThreadExecutionStrategy implements ExecutionStrategy
+{
+    private static final Optional<MethodHandle> FACTORY = findFactory();
+
+    private final ExecutorService executor;
+
+    public VirtualThreadExecutionStrategy()
+    {
+        if (! FACTORY.isPresent())
+        {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later");
+        }
+        try
+        {
+            executor = (ExecutorService) FACTORY.get().invokeExact();
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Couldn't create virtual thread executor", t);
+        }
+    }
+
+    public static boolean isSupported()
+    {
+        return FACTORY.isPresent();
+    }
+
+    private static Optional<MethodHandle> findFactory()
+    {
+        try
+        {
+            return Optional.of(MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class)));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e)
+        {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void execute(final Runnable task) throws RejectedExecutionException
+    {
+        executor.execute(task);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+}
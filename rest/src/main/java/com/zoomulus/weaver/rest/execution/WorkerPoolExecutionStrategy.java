@@ -0,0 +1,50 @@
+package com.zoomulus.weaver.rest.execution;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs invocations on a fixed number of worker threads.  At most queueLength
+ * invocations wait for a worker; beyond that requests are rejected rather than
+ * queued without bound.  Idle workers exit after a minute.
+ */
+public class WorkerPoolExecutionStrategy implements ExecutionStrategy
+{
+    public static final int DEFAULT_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_QUEUE_LENGTH = 1024;
+
+    private final ThreadPoolExecutor executor;
+
+    public WorkerPoolExecutionStrategy()
+    {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_LENGTH);
+    }
+
+    public WorkerPoolExecutionStrategy(final int threads, final int queueLength)
+    {
+        final BlockingQueue<Runnable> queue = 0 == queueLength ?
+                new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueLength);
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue,
+                new ThreadFactoryBuilder().setNameFormat("weaver-worker-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(final Runnable task) throws RejectedExecutionException
+    {
+        executor.execute(task);
+    }
+
+    @Override
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,264 @@
+package com.zoomulus.weaver.rest.jaxrs;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import lombok.NonNull;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The AsyncResponse passed to a resource method parameter annotated with
+ * {@code @Suspended}.  Nothing waits on it: whatever the resource resumes it
+ * with completes {@link #getOutcome()}, and the response is written from there.
+ *
+ * Timeouts run on the given scheduler, normally the channel's event loop.  An
+ * expired timeout with no TimeoutHandler, or whose handler neither resumes nor
+ * extends it, resumes with a ServiceUnavailableException.  Only
+ * CompletionCallbacks can be registered; they run once the response has been
+ * sent, or has failed to be, when {@link #sent(Optional)} is called.
+ */
+public class WeaverAsyncResponse implements AsyncResponse
+{
+    private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+    private final ScheduledExecutorService scheduler;
+    private final List<CompletionCallback> completionCallbacks = Lists.newArrayList();
+    private TimeoutHandler timeoutHandler = null;
+    private ScheduledFuture<?> timeout = null;
+    private boolean resumed = false;
+    private boolean cancelled = false;
+    private Throwable resumedWith = null;
+    private boolean sent = false;
+
+    public WeaverAsyncResponse(@NonNull final ScheduledExecutorService scheduler)
+    {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Completes with the value the resource resumed with, or exceptionally with
+     * the Throwable it resumed with.
+     */
+    public CompletionStage<Object> getOutcome()
+    {
+        return outcome;
+    }
+
+    /**
+     * Runs the CompletionCallbacks once the response has been written.  They get
+     * the Throwable the resource resumed with, if it did, otherwise the write's
+     * failure, if any.
+     */
+    public void sent(final Optional<Throwable> failure)
+    {
+        final List<CompletionCallback> callbacks;
+        final Throwable error;
+        synchronized (this)
+        {
+            if (sent) return;
+            sent = true;
+            callbacks = Lists.newArrayList(completionCallbacks);
+            error = null != resumedWith ? resumedWith : failure.orElse(null);
+        }
+        for (final CompletionCallback callback : callbacks)
+        {
+            callback.onComplete(error);
+        }
+    }
+
+    @Override
+    public boolean resume(final Object response)
+    {
+        return complete(response, null, false);
+    }
+
+    @Override
+    public boolean resume(final Throwable response)
+    {
+        return complete(null, response, false);
+    }
+
+    @Override
+    public boolean cancel()
+    {
+        return cancel(Response.status(Status.SERVICE_UNAVAILABLE).build());
+    }
+
+    @Override
+    public boolean cancel(final int retryAfter)
+    {
+        return cancel(Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfter).build());
+    }
+
+    @Override
+    public boolean cancel(final Date retryAfter)
+    {
+        return cancel(Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfter).build());
+    }
+
+    private boolean cancel(final Response response)
+    {
+        return complete(response, null, true) || isCancelled();
+    }
+
+    @Override
+    public synchronized boolean isSuspended()
+    {
+        return ! resumed;
+    }
+
+    @Override
+    public synchronized boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone()
+    {
+        return resumed;
+    }
+
+    @Override
+    public synchronized boolean setTimeout(final long time, @NonNull final TimeUnit unit)
+    {
+        if (resumed) return false;
+        if (null != timeout)
+        {
+            timeout.cancel(false);
+            timeout = null;
+        }
+        if (time > 0)
+        {
+            timeout = scheduler.schedule(this::expire, time, unit);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void setTimeoutHandler(final TimeoutHandler handler)
+    {
+        timeoutHandler = handler;
+    }
+
+    @Override
+    public Collection<Class<?>> register(@NonNull final Class<?> callback)
+    {
+        try
+        {
+            return register(callback.newInstance());
+        }
+        catch (InstantiationException | IllegalAccessException e)
+        {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(@NonNull final Class<?> callback, final Class<?>... callbacks)
+    {
+        final Map<Class<?>, Collection<Class<?>>> registered = Maps.newHashMap();
+        registered.put(callback, register(callback));
+        for (final Class<?> c : callbacks)
+        {
+            registered.put(c, register(c));
+        }
+        return registered;
+    }
+
+    @Override
+    public Collection<Class<?>> register(@NonNull final Object callback)
+    {
+        final Collection<Class<?>> registered = Sets.newHashSet();
+        if (callback instanceof CompletionCallback)
+        {
+            synchronized (this)
+            {
+                completionCallbacks.add((CompletionCallback) callback);
+            }
+            registered.add(CompletionCallback.class);
+        }
+        return registered;
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(@NonNull final Object callback, final Object... callbacks)
+    {
+        final Map<Class<?>, Collection<Class<?>>> registered = Maps.newHashMap();
+        registered.put(callback.getClass(), register(callback));
+        for (final Object c : callbacks)
+        {
+            registered.put(c.getClass(), register(c));
+        }
+        return registered;
+    }
+
+    /**
+     * Whatever depends on the outcome may run, and send the response, as it
+     * completes, so everything the response is sent with is settled first.
+     */
+    private boolean complete(final Object value, final Throwable error, final boolean cancelling)
+    {
+        synchronized (this)
+        {
+            if (resumed) return false;
+            resumed = true;
+            cancelled = cancelling;
+            resumedWith = error;
+            if (null != timeout)
+            {
+                timeout.cancel(false);
+                timeout = null;
+            }
+        }
+        final boolean completed = null == error ? outcome.complete(value) : outcome.completeExceptionally(error);
+        if (! completed)
+        {
+            synchronized (this)
+            {
+                resumed = false;
+                cancelled = false;
+                resumedWith = null;
+            }
+        }
+        return completed;
+    }
+
+    private void expire()
+    {
+        final TimeoutHandler handler;
+        synchronized (this)
+        {
+            timeout = null;
+            handler = timeoutHandler;
+        }
+        if (null != handler)
+        {
+            handler.handleTimeout(this);
+        }
+        synchronized (this)
+        {
+            // The handler may have set a new timeout instead of resuming.
+            if (null != timeout) return;
+        }
+        resume(new ServiceUnavailableException());
+    }
+}
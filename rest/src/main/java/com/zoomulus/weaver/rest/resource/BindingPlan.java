@@ -0,0 +1,85 @@
+package com.zoomulus.weaver.rest.resource;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import lombok.Getter;
+
+import com.zoomulus.weaver.rest.annotations.Incremental;
+import com.zoomulus.weaver.rest.annotations.StrictParams;
+import com.zoomulus.weaver.rest.content.ContentCodec;
+import com.zoomulus.weaver.rest.resource.ParamBinder.BodyBinder;
+import com.zoomulus.weaver.rest.resource.ParamBinder.IncrementalBodyBinder;
+
+/**
+ * How to fill in the arguments of one resource method, compiled from its
+ * parameter types and annotations when the resource is scanned.
+ */
+public class BindingPlan
+{
+    final ParamBinder[] binders;
+    @Getter
+    private final boolean strictParams;
+    @Getter
+    private final boolean formParamsRequired;
+    @Getter
+    private final boolean suspended;
+    @Getter
+    private final boolean streaming;
+    @Getter
+    private final String className;
+    @Getter
+    private final String methodName;
+
+    private BindingPlan(final Method referencedMethod, final ParamConverters converters, final ContentCodec codec)
+    {
+        final Class<?>[] parameterTypes = referencedMethod.getParameterTypes();
+        final Type[] genericTypes = referencedMethod.getGenericParameterTypes();
+        final Annotation[][] parameterAnnotations = referencedMethod.getParameterAnnotations();
+        binders = new ParamBinder[parameterTypes.length];
+        boolean formParams = false;
+        boolean suspendedParam = false;
+        boolean streamingParam = false;
+        final boolean incremental = null != referencedMethod.getAnnotation(Incremental.class);
+        for (int i=0; i<binders.length; i++)
+        {
+            binders[i] = ParamBinder.create(parameterTypes[i], genericTypes[i], parameterAnnotations[i], converters, codec);
+            if (incremental && binders[i] instanceof BodyBinder)
+            {
+                binders[i] = new IncrementalBodyBinder((BodyBinder) binders[i]);
+            }
+            formParams |= binders[i].isFormParam();
+            suspendedParam |= binders[i].isSuspended();
+            streamingParam |= binders[i].isStreaming();
+        }
+        strictParams = null != referencedMethod.getAnnotation(StrictParams.class);
+        formParamsRequired = formParams || strictParams;
+        suspended = suspendedParam;
+        streaming = streamingParam;
+        className = referencedMethod.getDeclaringClass().getName();
+        methodName = referencedMethod.getName();
+    }
+
+    public static BindingPlan compile(final Method referencedMethod)
+    {
+        return compile(referencedMethod, ParamConverters.defaults());
+    }
+
+    public static BindingPlan compile(final Method referencedMethod, final ParamConverters converters)
+    {
+        return compile(referencedMethod, converters, ContentCodec.defaults());
+    }
+
+    public static BindingPlan compile(final Method referencedMethod,
+            final ParamConverters converters,
+            final ContentCodec codec)
+    {
+        return new BindingPlan(referencedMethod, converters, codec);
+    }
+
+    public int size()
+    {
+        return binders.length;
+    }
+}
@@ -4,10 +4,14 @@ import io.netty.handler.codec.http.HttpMethod;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -18,14 +22,51 @@ import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.StreamingOutput;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.inject.Injector;
 import com.zoomulus.weaver.core.content.ContentType;
 import com.zoomulus.weaver.core.util.PathJoiner;
+import com.zoomulus.weaver.rest.content.ContentCodec;
+import com.zoomulus.weaver.rest.execution.ExecutionMode;
+import com.zoomulus.weaver.rest.response.ChannelOutput;
+import com.zoomulus.weaver.rest.response.ResponseFactory;
 
 public class DefaultResourceScannerStrategy implements ResourceScannerStrategy
 {
+    private final Optional<Injector> injector;
+    private final ParamConverters converters;
+    private final ContentCodec codec;
+    private final ResponseFactory responseFactory;
+
+    public DefaultResourceScannerStrategy()
+    {
+        this(Optional.empty());
+    }
+
+    public DefaultResourceScannerStrategy(final Optional<Injector> injector)
+    {
+        this(injector, ParamConverters.defaults());
+    }
+
+    public DefaultResourceScannerStrategy(final Optional<Injector> injector, final ParamConverters converters)
+    {
+        this(injector, converters, ContentCodec.defaults());
+    }
+
+    public DefaultResourceScannerStrategy(final Optional<Injector> injector,
+            final ParamConverters converters,
+            final ContentCodec codec)
+    {
+        this.injector = injector;
+        this.converters = converters;
+        this.codec = codec;
+        responseFactory = new ResponseFactory(codec);
+    }
+
     @Override
     public Map<ResourceIdentifier, Resource> scan(Set<Class<?>> resourceClasses)
     {
@@ -37,24 +78,39 @@ public class DefaultResourceScannerStrategy implements ResourceScannerStrategy
             classPath = resourceClass.getAnnotation(Path.class);
             if (null == classPath) continue;
 
+            ResourceProvider provider = null;
+
             for (final Method method : resourceClass.getMethods())
             {
                 final Optional<HttpMethod> httpMethod = getHttpMethodForMethod(method);
                 
                 if (httpMethod.isPresent())
-                {                
+                {
+                    if (null == provider) provider = ResourceProvider.forClass(resourceClass, injector);
+
                     Path methodPath = method.getAnnotation(Path.class);
                     String absPath = null == methodPath ?
                             new PathJoiner().with(classPath.value()).join() :
                             new PathJoiner().with(classPath.value()).with(methodPath.value()).join();
                             
+                    final BindingPlan bindingPlan = BindingPlan.compile(method, converters, codec);
                     final Resource rsrc = Resource.builder()
                             .referencedClass(resourceClass)
                             .referencedMethod(method)
+                            .invoker(ResourceInvoker.create(method))
+                            .provider(provider)
+                            .bindingPlan(bindingPlan)
+                            .responseFactory(responseFactory)
+                            .executionMode(ExecutionMode.of(resourceClass, method))
+                            .async(CompletionStage.class.isAssignableFrom(method.getReturnType()) || bindingPlan.isSuspended())
+                            .streaming(bindingPlan.isStreaming())
+                            .streamedResponse(isStreamedResponse(method.getReturnType()))
                             .path(absPath)
                             .httpMethod(httpMethod.get())
                             .consumesContentTypes(getConsumesContentTypes(httpMethod.get(), method, resourceClass))
                             .producesContentTypes(getProducesContentTypes(httpMethod.get(), method, resourceClass))
+                            .acceptedContentTypes(getAcceptedContentTypes(method, resourceClass))
+                            .producedContentTypes(getProducedContentTypes(method, resourceClass))
                             .build();
                     
                     results.put(new ResourceIdentifier(absPath, httpMethod.get()), rsrc);
@@ -65,6 +121,17 @@ public class DefaultResourceScannerStrategy implements ResourceScannerStrategy
         return results;
     }
     
+    private static boolean isStreamedResponse(final Class<?> returnType)
+    {
+        return StreamingOutput.class.isAssignableFrom(returnType) ||
+                ChannelOutput.class.isAssignableFrom(returnType) ||
+                Stream.class.isAssignableFrom(returnType) ||
+                Iterator.class.isAssignableFrom(returnType) ||
+                (Iterable.class.isAssignableFrom(returnType) &&
+                        ! Collection.class.isAssignableFrom(returnType) &&
+                        ! java.nio.file.Path.class.isAssignableFrom(returnType));
+    }
+    
     private Optional<HttpMethod> getHttpMethodForMethod(final Method method)
     {
         return Optional.ofNullable(
@@ -77,6 +144,59 @@ public class DefaultResourceScannerStrategy implements ResourceScannerStrategy
                                         null))))));
     }
     
+    /**
+     * The types a method's @Consumes declares, or else its class's, parsed once
+     * here rather than per request.  Unknown types are left out.
+     */
+    private static List<ContentType> getAcceptedContentTypes(final Method method, final Class<?> resourceClass)
+    {
+        Consumes consumes = method.getAnnotation(Consumes.class);
+        if (null == consumes) consumes = resourceClass.getAnnotation(Consumes.class);
+        final ImmutableList.Builder<ContentType> contentTypes = ImmutableList.builder();
+        if (null != consumes)
+        {
+            for (final String cts : consumes.value())
+            {
+                try
+                {
+                    contentTypes.add(ContentType.valueOf(cts));
+                }
+                catch (IllegalArgumentException e) { }
+            }
+        }
+        return contentTypes.build();
+    }
+    
+    /**
+     * As above for @Produces, except that types that aren't known are parsed
+     * as they are.
+     */
+    private static List<ContentType> getProducedContentTypes(final Method method, final Class<?> resourceClass)
+    {
+        Produces produces = method.getAnnotation(Produces.class);
+        if (null == produces) produces = resourceClass.getAnnotation(Produces.class);
+        final ImmutableList.Builder<ContentType> contentTypes = ImmutableList.builder();
+        if (null != produces)
+        {
+            for (final String cts : produces.value())
+            {
+                try
+                {
+                    contentTypes.add(ContentType.valueOf(cts));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    try
+                    {
+                        contentTypes.add(new ContentType(cts));
+                    }
+                    catch (IllegalArgumentException e2) { }
+                }
+            }
+        }
+        return contentTypes.build();
+    }
+    
     private List<String> getConsumesContentTypes(final HttpMethod httpMethod, final Method method, final Class<?> resourceClass)
     {
         final List<String> contentTypes = Lists.newArrayList();
@@ -0,0 +1,613 @@
+package com.zoomulus.weaver.rest.resource;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.MatrixParam;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.PathSegment;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.annotations.Incremental;
+import com.zoomulus.weaver.rest.annotations.RequiredParam;
+import com.zoomulus.weaver.rest.content.ContentCodec;
+import com.zoomulus.weaver.rest.content.HttpContent;
+import com.zoomulus.weaver.rest.content.RequestBody;
+import com.zoomulus.weaver.rest.resource.ParamConverters.CollectionConverter;
+import com.zoomulus.weaver.rest.resource.ParamConverters.StringConverter;
+
+/**
+ * Produces the value of one resource method parameter from a request.  Binders
+ * are created once per parameter when a Resource is scanned, so the annotations
+ * and parameter type are only inspected then.  A binder returns MISSING when the
+ * request has no value it can use, which fails the request with a 400.
+ */
+abstract class ParamBinder
+{
+    static final Object MISSING = new Object();
+
+    abstract Object bind(final ResourceArgs args) throws IOException, InvocationTargetException;
+
+    boolean isFormParam()
+    {
+        return false;
+    }
+
+    boolean isSuspended()
+    {
+        return false;
+    }
+
+    boolean isStreaming()
+    {
+        return false;
+    }
+
+    static ParamBinder create(final Class<?> parameterType,
+            final Type genericType,
+            final Annotation[] paramAnnotations,
+            final ParamConverters converters,
+            final ContentCodec codec)
+    {
+        if (0 == paramAnnotations.length)
+        {
+            if (StreamBinder.accepts(parameterType)) return new StreamBinder(parameterType);
+            if (ElementsBinder.accepts(parameterType)) return new ElementsBinder(parameterType, genericType, codec);
+            return RawBodyBinder.accepts(parameterType) ? new RawBodyBinder(parameterType) :
+                new BodyBinder(parameterType, ParamConverters.forType(parameterType), codec);
+        }
+        final StringConverter converter = converters.forParameter(parameterType, genericType, paramAnnotations);
+
+        Annotation paramTypeAnnotation = null;
+        Optional<String> defaultValue = Optional.empty();
+        boolean required = false;
+        for (final Annotation annotation : paramAnnotations)
+        {
+            if (annotation instanceof PathParam ||
+                    annotation instanceof MatrixParam ||
+                    annotation instanceof QueryParam ||
+                    annotation instanceof FormParam ||
+                    annotation instanceof HeaderParam)
+            {
+                paramTypeAnnotation = annotation;
+            }
+            else if (annotation instanceof DefaultValue)
+            {
+                defaultValue = Optional.of(((DefaultValue) annotation).value());
+            }
+            else if (annotation instanceof RequiredParam)
+            {
+                required = true;
+            }
+            else if (annotation instanceof Suspended && AsyncResponse.class == parameterType)
+            {
+                return new SuspendedBinder();
+            }
+        }
+
+        if (paramTypeAnnotation instanceof PathParam)
+        {
+            final String name = ((PathParam) paramTypeAnnotation).value();
+            return PathSegment.class.isAssignableFrom(parameterType) ?
+                    new PathSegmentBinder(name) : new PathBinder(converter, name);
+        }
+        else if (paramTypeAnnotation instanceof MatrixParam)
+        {
+            return new MatrixBinder(converter, ((MatrixParam) paramTypeAnnotation).value());
+        }
+        else if (paramTypeAnnotation instanceof QueryParam)
+        {
+            return new MultiValuedBinder(parameterType, ((QueryParam) paramTypeAnnotation).value(),
+                    false, defaultValue, required, converter,
+                    converters.forCollection(parameterType, genericType, paramAnnotations));
+        }
+        else if (paramTypeAnnotation instanceof FormParam)
+        {
+            return new MultiValuedBinder(parameterType, ((FormParam) paramTypeAnnotation).value(),
+                    true, defaultValue, required, converter,
+                    converters.forCollection(parameterType, genericType, paramAnnotations));
+        }
+        else if (paramTypeAnnotation instanceof HeaderParam)
+        {
+            return new HeaderBinder(converter, ((HeaderParam) paramTypeAnnotation).value(), defaultValue);
+        }
+        return new UnboundBinder();
+    }
+
+    /**
+     * Deserializes a body.  UTF-8 bodies are parsed straight from their bytes,
+     * which is Jackson's fastest path and never builds the body String.
+     */
+    static Object read(final ObjectReader reader, final HttpContent content) throws IOException
+    {
+        if (! CharsetUtil.UTF_8.equals(content.getCharset()))
+        {
+            return reader.readValue(content.getContent());
+        }
+        try (final InputStream in = content.getBody().openStream())
+        {
+            return reader.readValue(in);
+        }
+    }
+
+    /**
+     * The request's declared content type, read from the headers for bodies that
+     * are streamed rather than wrapped in an HttpContent.
+     */
+    static Optional<ContentType> requestContentType(final ResourceArgs args)
+    {
+        final String header = args.getHeaders().isPresent() ?
+                args.getHeaders().get().get(HttpHeaders.Names.CONTENT_TYPE) : null;
+        if (null == header) return Optional.empty();
+        try
+        {
+            return Optional.of(ContentType.valueOf(header));
+        }
+        catch (IllegalArgumentException e)
+        {
+            return Optional.empty();
+        }
+    }
+
+    static Object converted(final StringConverter converter, final String s_arg) throws InvocationTargetException
+    {
+        final Object arg = converter.fromString(s_arg);
+        return null != arg ? arg : MISSING;
+    }
+
+    /**
+     * Unannotated parameter: the request body, deserialized according to its
+     * content type unless the parameter is a String.
+     */
+    static class BodyBinder extends ParamBinder
+    {
+        private final StringConverter converter;
+        private final ObjectReader jsonReader;
+        private final ObjectReader xmlReader;
+        private final boolean raw;
+
+        BodyBinder(final Class<?> parameterType, final StringConverter converter, final ContentCodec codec)
+        {
+            this.converter = converter;
+            this.jsonReader = codec.jsonReader(parameterType);
+            this.xmlReader = codec.xmlReader(parameterType);
+            this.raw = String.class == parameterType;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws IOException, InvocationTargetException
+        {
+            final Optional<HttpContent> content = args.getContent();
+            if (! raw && content.isPresent())
+            {
+                final ContentType contentType = content.get().getContentType();
+                if (contentType.isCompatibleWith(ContentType.APPLICATION_JSON_TYPE))
+                {
+                    return read(jsonReader, content.get());
+                }
+                else if (contentType.isCompatibleWith(ContentType.APPLICATION_XML_TYPE))
+                {
+                    return read(xmlReader, content.get());
+                }
+                else if (contentType.isCompatibleWith(ContentType.TEXT_PLAIN_TYPE))
+                {
+                    final Object arg = converter.fromString(content.get().getContent());
+                    if (null != arg) return arg;
+                }
+            }
+
+            final Optional<String> body = args.getBody();
+            return body.isPresent() ? body.get() : null;
+        }
+    }
+
+    /**
+     * Body parameter of an {@link Incremental} method.  The body is parsed from
+     * the request's chunks as they arrive, so by the time the last one lands the
+     * value is built, and neither the whole body nor its String is ever held.
+     * Without a stream it binds like any body parameter.
+     */
+    static class IncrementalBodyBinder extends ParamBinder
+    {
+        private final BodyBinder body;
+
+        IncrementalBodyBinder(final BodyBinder body)
+        {
+            this.body = body;
+        }
+
+        @Override
+        boolean isStreaming()
+        {
+            return true;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws IOException, InvocationTargetException
+        {
+            if (! args.getBodyStream().isPresent())
+            {
+                return body.bind(args);
+            }
+            
+            final PushbackInputStream in = new PushbackInputStream(args.getBodyStream().get());
+            final int first = in.read();
+            if (-1 == first) return null;
+            in.unread(first);
+            
+            final Optional<ContentType> contentType = requestContentType(args);
+            final Charset charset = contentType.isPresent() ?
+                    Charset.forName(contentType.get().getEncoding()) : CharsetUtil.UTF_8;
+            if (! body.raw && contentType.isPresent())
+            {
+                if (contentType.get().isCompatibleWith(ContentType.APPLICATION_JSON_TYPE))
+                {
+                    return read(body.jsonReader, in, charset);
+                }
+                else if (contentType.get().isCompatibleWith(ContentType.APPLICATION_XML_TYPE))
+                {
+                    return read(body.xmlReader, in, charset);
+                }
+                else if (contentType.get().isCompatibleWith(ContentType.TEXT_PLAIN_TYPE))
+                {
+                    final Object arg = body.converter.fromString(text(in, charset));
+                    if (null != arg) return arg;
+                }
+            }
+            return text(in, charset);
+        }
+
+        private static Object read(final ObjectReader reader, final InputStream in, final Charset charset) throws IOException
+        {
+            return CharsetUtil.UTF_8.equals(charset) ?
+                    reader.readValue(in) : reader.readValue(new InputStreamReader(in, charset));
+        }
+
+        private static String text(final InputStream in, final Charset charset) throws IOException
+        {
+            return new String(ByteStreams.toByteArray(in), charset);
+        }
+    }
+
+    /**
+     * Unannotated ByteBuf, ByteBuffer or byte[] parameter: the body bytes as
+     * received, never decoded.  Only byte[] is a copy.  The others share the
+     * request's buffers and are valid until the resource method returns; a
+     * resource that keeps a ByteBuf retains it.  A ByteBuffer is only a view when
+     * the body arrived in one piece.
+     */
+    static class RawBodyBinder extends ParamBinder
+    {
+        private final Class<?> parameterType;
+
+        RawBodyBinder(final Class<?> parameterType)
+        {
+            this.parameterType = parameterType;
+        }
+
+        static boolean accepts(final Class<?> parameterType)
+        {
+            return ByteBuf.class == parameterType ||
+                    ByteBuffer.class == parameterType ||
+                    byte[].class == parameterType;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args)
+        {
+            final RequestBody body = args.getContent().isPresent() ?
+                    args.getContent().get().getBody() : RequestBody.empty();
+            if (ByteBuf.class == parameterType)
+            {
+                return body.content();
+            }
+            else if (ByteBuffer.class == parameterType)
+            {
+                return body.content().nioBuffer();
+            }
+            return body.asBytes();
+        }
+    }
+
+    /**
+     * Unannotated InputStream or ReadableByteChannel parameter.  A resource with
+     * one is invoked as soon as the request headers arrive, and reads the body
+     * while it is still being received.  Without a stream, e.g. when invoked
+     * with a body already read, the parameter reads that body.
+     */
+    static class StreamBinder extends ParamBinder
+    {
+        private final boolean channel;
+
+        StreamBinder(final Class<?> parameterType)
+        {
+            this.channel = ReadableByteChannel.class == parameterType;
+        }
+
+        static boolean accepts(final Class<?> parameterType)
+        {
+            return InputStream.class == parameterType || ReadableByteChannel.class == parameterType;
+        }
+
+        @Override
+        boolean isStreaming()
+        {
+            return true;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args)
+        {
+            if (args.getBodyStream().isPresent())
+            {
+                return args.getBodyStream().get();
+            }
+            final InputStream in = args.getContent().isPresent() ?
+                    args.getContent().get().getBody().openStream() : RequestBody.empty().openStream();
+            return channel ? Channels.newChannel(in) : in;
+        }
+    }
+
+    /**
+     * Unannotated Stream or Iterator parameter: the elements of a JSON array
+     * body, or of a sequence of JSON values such as NDJSON, each deserialized as
+     * the parser reaches it.  Like a stream parameter it is bound as soon as the
+     * headers arrive, so only the element being parsed and the chunks queued
+     * for it are held.  The elements must be consumed before the method returns.
+     *
+     * An element that fails to parse throws RuntimeJsonMappingException from the
+     * Stream or Iterator.
+     */
+    static class ElementsBinder extends ParamBinder
+    {
+        private final ObjectReader reader;
+        private final boolean stream;
+
+        ElementsBinder(final Class<?> parameterType, final Type genericType, final ContentCodec codec)
+        {
+            this.reader = codec.jsonReader(elementType(genericType));
+            this.stream = Stream.class == parameterType;
+        }
+
+        static boolean accepts(final Class<?> parameterType)
+        {
+            return Stream.class == parameterType || Iterator.class == parameterType;
+        }
+
+        private static Class<?> elementType(final Type genericType)
+        {
+            if (genericType instanceof ParameterizedType)
+            {
+                final Type element = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+                if (element instanceof Class) return (Class<?>) element;
+                if (element instanceof ParameterizedType) return (Class<?>) ((ParameterizedType) element).getRawType();
+            }
+            return Object.class;
+        }
+
+        @Override
+        boolean isStreaming()
+        {
+            return true;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws IOException
+        {
+            final InputStream in = args.getBodyStream().isPresent() ? args.getBodyStream().get() :
+                (args.getContent().isPresent() ? args.getContent().get().getBody() : RequestBody.empty()).openStream();
+            final Optional<ContentType> contentType = requestContentType(args);
+            final Charset charset = contentType.isPresent() ?
+                    Charset.forName(contentType.get().getEncoding()) : CharsetUtil.UTF_8;
+            final MappingIterator<Object> elements = CharsetUtil.UTF_8.equals(charset) ?
+                    reader.readValues(in) : reader.readValues(new InputStreamReader(in, charset));
+            if (! stream) return elements;
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+                    .onClose(() -> {
+                        try
+                        {
+                            elements.close();
+                        }
+                        catch (IOException e) { }
+                    });
+        }
+    }
+
+    static class PathSegmentBinder extends ParamBinder
+    {
+        private final String name;
+
+        PathSegmentBinder(final String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args)
+        {
+            final Optional<PathSegment> ps = args.getResourcePath().getPathSegment(name);
+            return ps.isPresent() ? ps.get() : MISSING;
+        }
+    }
+
+    static class PathBinder extends ParamBinder
+    {
+        private final StringConverter converter;
+        private final String name;
+
+        PathBinder(final StringConverter converter, final String name)
+        {
+            this.converter = converter;
+            this.name = name;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws InvocationTargetException
+        {
+            final String s_arg = args.getResourcePath().get(name);
+            return null != s_arg ? converted(converter, s_arg) : MISSING;
+        }
+    }
+
+    static class MatrixBinder extends ParamBinder
+    {
+        private final StringConverter converter;
+        private final String name;
+
+        MatrixBinder(final StringConverter converter, final String name)
+        {
+            this.converter = converter;
+            this.name = name;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws InvocationTargetException
+        {
+            final String s_arg = args.getResourcePath().matrixParamGet(name);
+            return null != s_arg ? converted(converter, s_arg) : MISSING;
+        }
+    }
+
+    /**
+     * Query or form parameter.  A List, Set or SortedSet parameter receives every
+     * value, converted to its element type; anything else receives the first.  An absent, optional, non-primitive parameter is
+     * passed as null.
+     */
+    static class MultiValuedBinder extends ParamBinder
+    {
+        private final String name;
+        private final boolean form;
+        private final Optional<String> defaultValue;
+        private final boolean nullable;
+        private final StringConverter converter;
+        private final Optional<CollectionConverter> collection;
+
+        MultiValuedBinder(final Class<?> parameterType,
+                final String name,
+                final boolean form,
+                final Optional<String> defaultValue,
+                final boolean required,
+                final StringConverter converter,
+                final Optional<CollectionConverter> collection)
+        {
+            this.name = name;
+            this.form = form;
+            this.defaultValue = defaultValue;
+            this.nullable = ! required && ! parameterType.isPrimitive();
+            this.converter = converter;
+            this.collection = collection;
+        }
+
+        @Override
+        boolean isFormParam()
+        {
+            return form;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws InvocationTargetException
+        {
+            final List<String> params = form ? args.getFormParams().get(name) : args.getQueryParams().get(name);
+            if (null != params && ! params.isEmpty())
+            {
+                return collection.isPresent() ?
+                        collection.get().fromStrings(params) : converted(converter, params.get(0));
+            }
+            if (defaultValue.isPresent())
+            {
+                return collection.isPresent() ?
+                        collection.get().fromStrings(ImmutableList.of(defaultValue.get())) :
+                        converted(converter, defaultValue.get());
+            }
+            return nullable ? null : MISSING;
+        }
+    }
+
+    static class HeaderBinder extends ParamBinder
+    {
+        private final StringConverter converter;
+        private final CharSequence name;
+        private final Optional<String> defaultValue;
+
+        HeaderBinder(final StringConverter converter, final String name, final Optional<String> defaultValue)
+        {
+            this.converter = converter;
+            this.name = HttpHeaders.newEntity(name);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args) throws InvocationTargetException
+        {
+            final Optional<HttpHeaders> headers = args.getHeaders();
+            String s_arg = headers.isPresent() ? headers.get().get(name) : null;
+            if (null == s_arg && defaultValue.isPresent())
+            {
+                s_arg = defaultValue.get();
+            }
+            return null != s_arg ? converted(converter, s_arg) : MISSING;
+        }
+    }
+
+    /**
+     * {@code @Suspended AsyncResponse}: the response the resource resumes later.
+     */
+    static class SuspendedBinder extends ParamBinder
+    {
+        @Override
+        boolean isSuspended()
+        {
+            return true;
+        }
+
+        @Override
+        Object bind(final ResourceArgs args)
+        {
+            final Optional<AsyncResponse> asyncResponse = args.getAsyncResponse();
+            return asyncResponse.isPresent() ? asyncResponse.get() : MISSING;
+        }
+    }
+
+    /**
+     * Annotated, but with nothing Weaver knows how to bind.
+     */
+    static class UnboundBinder extends ParamBinder
+    {
+        @Override
+        Object bind(final ResourceArgs args)
+        {
+            return MISSING;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.zoomulus.weaver.rest.resource;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Resolves how a request string becomes a parameter of a given type.
+ *
+ * Registered ParamConverterProviders are asked first, once per parameter when
+ * the binding plan is compiled.  Otherwise the converter for the type is looked
+ * up through a ClassValue, so each type is inspected only once per class loader:
+ * primitives and their wrappers, then a public String constructor, then a static
+ * valueOf(String) or fromString(String) (fromString first for enums).  Types with
+ * none of these get the string itself, and that result is cached as well.
+ */
+public class ParamConverters
+{
+    /**
+     * Converts one string value.  Failures in the target type's own factory are
+     * reported as InvocationTargetException.
+     */
+    @FunctionalInterface
+    public interface StringConverter
+    {
+        Object fromString(final String value) throws InvocationTargetException;
+    }
+
+    static final StringConverter IDENTITY = s -> s;
+
+    private static final Map<Class<?>, StringConverter> PRIMITIVES = ImmutableMap.<Class<?>, StringConverter>builder()
+            .put(boolean.class, Boolean::valueOf)
+            .put(byte.class, Byte::valueOf)
+            .put(short.class, Short::valueOf)
+            .put(int.class, Integer::valueOf)
+            .put(long.class, Long::valueOf)
+            .put(float.class, Float::valueOf)
+            .put(double.class, Double::valueOf)
+            .put(char.class, s -> null)
+            .put(String.class, IDENTITY)
+            .put(Object.class, IDENTITY)
+            .put(CharSequence.class, IDENTITY)
+            .build();
+
+    private static final ClassValue<StringConverter> CONVERTERS = new ClassValue<StringConverter>() {
+        @Override
+        protected StringConverter computeValue(final Class<?> type)
+        {
+            return resolve(type);
+        }
+    };
+
+    private static final ParamConverters DEFAULTS = new ParamConverters(ImmutableList.of());
+
+    private final List<ParamConverterProvider> providers;
+
+    public ParamConverters(final List<ParamConverterProvider> providers)
+    {
+        this.providers = ImmutableList.copyOf(providers);
+    }
+
+    public static ParamConverters defaults()
+    {
+        return DEFAULTS;
+    }
+
+    /**
+     * The cached built-in converter for a type, ignoring any providers.
+     */
+    public static StringConverter forType(final Class<?> type)
+    {
+        return CONVERTERS.get(type);
+    }
+
+    public StringConverter forParameter(final Class<?> rawType, final Type genericType, final Annotation[] annotations)
+    {
+        for (final ParamConverterProvider provider : providers)
+        {
+            final ParamConverter<?> converter = provider.getConverter(rawType, genericType, annotations);
+            if (null != converter)
+            {
+                return converter::fromString;
+            }
+        }
+        return forType(rawType);
+    }
+
+    /**
+     * Converter for a List, Set or SortedSet parameter that converts every value
+     * to the collection's element type.  Empty if the type is not a collection.
+     */
+    public Optional<CollectionConverter> forCollection(final Class<?> rawType,
+            final Type genericType,
+            final Annotation[] annotations)
+    {
+        final Supplier<Collection<Object>> factory;
+        if (List.class == rawType || Collection.class == rawType) factory = ArrayList::new;
+        else if (Set.class == rawType) factory = LinkedHashSet::new;
+        else if (SortedSet.class == rawType) factory = TreeSet::new;
+        else if (List.class.isAssignableFrom(rawType))
+        {
+            // A concrete List type receives the decoded values as they are.
+            return Optional.of(new CollectionConverter(true, ArrayList::new, IDENTITY));
+        }
+        else return Optional.empty();
+
+        Type elementType = String.class;
+        if (genericType instanceof ParameterizedType)
+        {
+            elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+        }
+        final Class<?> elementClass = elementType instanceof Class ? (Class<?>) elementType :
+            (elementType instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) elementType).getRawType() : String.class);
+
+        return Optional.of(new CollectionConverter(List.class == rawType || Collection.class == rawType,
+                factory,
+                forParameter(elementClass, elementType, annotations)));
+    }
+
+    public static class CollectionConverter
+    {
+        private final boolean list;
+        private final Supplier<Collection<Object>> factory;
+        private final StringConverter element;
+
+        CollectionConverter(final boolean list, final Supplier<Collection<Object>> factory, final StringConverter element)
+        {
+            this.list = list;
+            this.factory = factory;
+            this.element = element;
+        }
+
+        public Object fromStrings(final List<String> values) throws InvocationTargetException
+        {
+            if (list && IDENTITY == element) return values;
+            final Collection<Object> result = factory.get();
+            for (final String value : values)
+            {
+                result.add(element.fromString(value));
+            }
+            return result;
+        }
+    }
+
+    private static StringConverter resolve(final Class<?> type)
+    {
+        final StringConverter primitive = PRIMITIVES.get(type);
+        if (null != primitive) return primitive;
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            final Constructor<?> ctor = type.getConstructor(String.class);
+            ctor.setAccessible(true);
+            return handle(lookup.unreflectConstructor(ctor));
+        }
+        catch (NoSuchMethodException | IllegalAccessException | SecurityException e) { }
+
+        final Optional<MethodHandle> valueOf = factoryMethod(lookup, type, "valueOf");
+        final Optional<MethodHandle> fromString = factoryMethod(lookup, type, "fromString");
+        if (type.isEnum() && fromString.isPresent()) return handle(fromString.get());
+        if (valueOf.isPresent()) return handle(valueOf.get());
+        if (fromString.isPresent()) return handle(fromString.get());
+        return IDENTITY;
+    }
+
+    private static Optional<MethodHandle> factoryMethod(final MethodHandles.Lookup lookup,
+            final Class<?> type,
+            final String name)
+    {
+        for (final Method method : type.getDeclaredMethods())
+        {
+            if (method.getName().equals(name)
+                    && Modifier.isStatic(method.getModifiers())
+                    && 1 == method.getParameterCount()
+                    && String.class == method.getParameterTypes()[0])
+            {
+                try
+                {
+                    method.setAccessible(true);
+                    return Optional.of(lookup.unreflect(method));
+                }
+                catch (IllegalAccessException | SecurityException e) { }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static StringConverter handle(final MethodHandle mh)
+    {
+        final MethodHandle generic = mh.asType(MethodType.methodType(Object.class, String.class));
+        return s -> {
+            try
+            {
+                return generic.invokeExact(s);
+            }
+            catch (Throwable t)
+            {
+                throw new InvocationTargetException(t);
+            }
+        };
+    }
+}
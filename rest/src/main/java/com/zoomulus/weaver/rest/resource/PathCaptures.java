@@ -0,0 +1,228 @@
+package com.zoomulus.weaver.rest.resource;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import com.google.common.collect.Sets;
+import com.zoomulus.weaver.rest.resource.ResourceRouter.Node;
+import com.zoomulus.weaver.rest.resource.ResourceRouter.RegexNode;
+import com.zoomulus.weaver.rest.resource.ResourceRouter.Route;
+
+/**
+ * Reusable scratch space for matching a request path against a ResourceRouter.
+ *
+ * The raw path is scanned once by index; each non-empty segment is recorded as
+ * three offsets (segment start, end of the value before any matrix parameters,
+ * segment end) in a flat array.  A RestHandler keeps one instance per channel,
+ * so once the arrays have grown to fit the deepest path seen, matching allocates
+ * nothing.  Strings, matrix parameters and PathSegments are produced by the
+ * ResourcePath only when a parameter binder asks for them.
+ */
+public class PathCaptures
+{
+    static final int STRIDE = 3;
+
+    String path;
+    int pathEnd;
+    int[] segments = new int[STRIDE * 8];
+    int segmentCount;
+
+    Route route;
+    Set<HttpMethod> allowedMethods;
+
+    private Object matchersOwner;
+    private Matcher[] matchers = new Matcher[0];
+    private final Segment segment = new Segment();
+
+    void scan(final String path, final int pathEnd)
+    {
+        this.path = path;
+        this.pathEnd = pathEnd;
+        this.segmentCount = 0;
+        this.route = null;
+        this.allowedMethods = null;
+
+        int i = 0;
+        while (i < pathEnd)
+        {
+            if ('/' == path.charAt(i))
+            {
+                ++i;
+                continue;
+            }
+            final int start = i;
+            int valueEnd = -1;
+            while (i < pathEnd)
+            {
+                final char c = path.charAt(i);
+                if ('/' == c) break;
+                if (';' == c && -1 == valueEnd) valueEnd = i;
+                ++i;
+            }
+            add(start, -1 == valueEnd ? i : valueEnd, i);
+        }
+    }
+
+    private void add(final int start, final int valueEnd, final int end)
+    {
+        final int idx = segmentCount * STRIDE;
+        if (idx + STRIDE > segments.length)
+        {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        segments[idx] = start;
+        segments[idx+1] = valueEnd;
+        segments[idx+2] = end;
+        ++segmentCount;
+    }
+
+    int valueStart(final int segmentIdx)
+    {
+        return segments[segmentIdx * STRIDE];
+    }
+
+    int valueEnd(final int segmentIdx)
+    {
+        return segments[segmentIdx * STRIDE + 1];
+    }
+
+    void allow(final Set<HttpMethod> methods)
+    {
+        if (null == allowedMethods) allowedMethods = Sets.newLinkedHashSet();
+        allowedMethods.addAll(methods);
+    }
+
+    void found(final Route route, final Node node)
+    {
+        this.route = route;
+        this.allowedMethods = node.allowedMethods;
+    }
+
+    Matcher matcher(final Object owner, final int regexCount, final RegexNode node, final int start, final int end)
+    {
+        if (owner != matchersOwner)
+        {
+            matchersOwner = owner;
+            matchers = new Matcher[regexCount];
+        }
+        segment.reset(path, start, end);
+        Matcher matcher = matchers[node.id];
+        if (null == matcher)
+        {
+            matcher = node.pattern.matcher(segment);
+            matchers[node.id] = matcher;
+        }
+        else
+        {
+            matcher.reset(segment);
+        }
+        return matcher;
+    }
+
+    public boolean isMatched()
+    {
+        return null != route;
+    }
+
+    public Resource getResource()
+    {
+        return null != route ? route.resource : null;
+    }
+
+    public Set<HttpMethod> getAllowedMethods()
+    {
+        return null != allowedMethods ? Collections.unmodifiableSet(allowedMethods) : Collections.emptySet();
+    }
+
+    CachedRoute snapshot()
+    {
+        return new CachedRoute(route, allowedMethods, Arrays.copyOf(segments, segmentCount * STRIDE), segmentCount);
+    }
+
+    void restore(final CachedRoute cached, final String path, final int pathEnd)
+    {
+        this.path = path;
+        this.pathEnd = pathEnd;
+        if (cached.segments.length > segments.length)
+        {
+            segments = Arrays.copyOf(cached.segments, cached.segments.length);
+        }
+        else
+        {
+            System.arraycopy(cached.segments, 0, segments, 0, cached.segments.length);
+        }
+        this.segmentCount = cached.segmentCount;
+        this.route = cached.route;
+        this.allowedMethods = cached.allowedMethods;
+    }
+
+    /**
+     * Captures the matched path as a ResourcePath.  The offsets are copied, so the
+     * ResourcePath stays valid after this instance is reused for another request.
+     */
+    public ResourcePath toResourcePath()
+    {
+        return new ResourcePath(path, pathEnd,
+                Arrays.copyOf(segments, segmentCount * STRIDE),
+                segmentCount,
+                route.paramNames);
+    }
+
+    static class CachedRoute
+    {
+        final Route route;
+        final Set<HttpMethod> allowedMethods;
+        final int[] segments;
+        final int segmentCount;
+
+        CachedRoute(final Route route, final Set<HttpMethod> allowedMethods, final int[] segments, final int segmentCount)
+        {
+            this.route = route;
+            this.allowedMethods = allowedMethods;
+            this.segments = segments;
+            this.segmentCount = segmentCount;
+        }
+    }
+
+    private static class Segment implements CharSequence
+    {
+        private String s;
+        private int start;
+        private int end;
+
+        void reset(final String s, final int start, final int end)
+        {
+            this.s = s;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length()
+        {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(final int index)
+        {
+            return s.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to)
+        {
+            return s.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString()
+        {
+            return s.substring(start, end);
+        }
+    }
+}
@@ -1,37 +1,51 @@
 package com.zoomulus.weaver.rest.resource;
 
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
 
 import java.io.IOException;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
-import javax.ws.rs.Consumes;
-import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.Status;
 
 import lombok.Value;
 import lombok.experimental.Builder;
+import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.google.common.base.Strings;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.zoomulus.weaver.core.content.ContentType;
 import com.zoomulus.weaver.rest.content.HttpContent;
+import com.zoomulus.weaver.rest.content.RequestBody;
+import com.zoomulus.weaver.rest.content.RequestBodyStream;
 import com.zoomulus.weaver.rest.contenttype.ContentTypeResolverStrategy;
 import com.zoomulus.weaver.rest.contenttype.IntelligentContentTypeResolverStrategy;
 import com.zoomulus.weaver.rest.exceptions.StrictParamsMismatchException;
+import com.zoomulus.weaver.rest.execution.ExecutionMode;
+import com.zoomulus.weaver.rest.jaxrs.WeaverAsyncResponse;
 import com.zoomulus.weaver.rest.resource.ResourceArgs.ResourceArgsBuilder.ResourceArgsBuilderException;
 import com.zoomulus.weaver.rest.response.ResponseFactory;
+import com.zoomulus.weaver.rest.response.ResponseSizeHint;
+import com.zoomulus.weaver.rest.response.RestResponse;
 
+@Slf4j
 @Value
 @Builder
 public class Resource
@@ -42,9 +56,22 @@ public class Resource
     HttpMethod httpMethod;
     List<String> consumesContentTypes;
     List<String> producesContentTypes;
+    // Parsed from the method's @Consumes and @Produces, or else the class's.
+    List<ContentType> acceptedContentTypes;
+    List<ContentType> producedContentTypes;
+    ResourceInvoker invoker;
+    ResourceProvider provider;
+    BindingPlan bindingPlan;
+    ResponseFactory responseFactory;
+    ExecutionMode executionMode;
+    boolean async;
+    boolean streaming;
+    boolean streamedResponse;
     
     Map<String, String> pathParams = Maps.newHashMap();
     
+    ResponseSizeHint responseSizeHint = new ResponseSizeHint();
+    
     ContentTypeResolverStrategy inboundContentTypeResolverStrategy =
             new IntelligentContentTypeResolverStrategy();
     
@@ -59,25 +86,6 @@ public class Resource
     // Support ParamConverter<T>
     // Ensure most optimal match works
     
-    private List<ContentType> getAcceptedContentTypes()
-    {
-        Annotation consumesAnnotation = referencedMethod.getAnnotation(Consumes.class);
-        if (null == consumesAnnotation) consumesAnnotation = referencedClass.getAnnotation(Consumes.class);
-        final List<ContentType> acceptedContentTypes = Lists.newArrayList();
-        if (null != consumesAnnotation)
-        {
-            for (final String cts : ((Consumes)consumesAnnotation).value())
-            {
-                try
-                {
-                    acceptedContentTypes.add(ContentType.valueOf(cts));
-                }
-                catch (IllegalArgumentException e) { }
-            }
-        }
-        return acceptedContentTypes;
-    }
-    
     private List<ContentType> getRequestContentTypes(final Optional<HttpHeaders> headers)
     {
         return getContentTypesForHeader(headers, HttpHeaders.Names.CONTENT_TYPE);
@@ -107,41 +115,20 @@ public class Resource
     
     private List<ContentType> getProducesContentTypes(final Object response)
     {
-        final List<ContentType> contentTypes = Lists.newArrayList();
         if (response instanceof Response && ((Response)response).getMediaType() != null)
         {
-            contentTypes.add(new ContentType(((Response)response).getMediaType().toString()));
-        }
-        else
-        {
-            Annotation producesAnnotation = referencedMethod.getAnnotation(Produces.class);
-            if (null == producesAnnotation) producesAnnotation = referencedClass.getAnnotation(Produces.class);
-            if (null != producesAnnotation)
-            {
-                for (final String cts : ((Produces)producesAnnotation).value())
-                {
-                    try
-                    {
-                        contentTypes.add(ContentType.valueOf(cts));
-                    }
-                    catch (IllegalArgumentException e)
-                    {
-                        try
-                        {
-                            contentTypes.add(new ContentType(cts));
-                        }
-                        catch (IllegalArgumentException e2) { }
-                    }
-                }
-            }
+            return Lists.newArrayList(new ContentType(((Response)response).getMediaType().toString()));
         }
-        return contentTypes;
+        return producedContentTypes;
     }
         
-    private Object invokeEndpoint(final String messageBody,
+    private Object invokeEndpoint(final RequestBody messageBody,
+            final Optional<RequestBodyStream> bodyStream,
             final ResourcePath resourcePath,
             final Optional<HttpHeaders> headers,
-            final Map<String, List<String>> queryParams)
+            final Map<String, List<String>> queryParams,
+            final Optional<WeaverAsyncResponse> asyncResponse,
+            final Optional<Executor> eventLoop)
                     throws JsonParseException, JsonMappingException, InstantiationException, IllegalAccessException,
                     IllegalArgumentException, InvocationTargetException, ResourceArgsBuilderException,
                     IOException, NoSuchMethodException, SecurityException, StrictParamsMismatchException
@@ -152,11 +139,11 @@ public class Resource
                 || HttpMethod.PATCH == httpMethod);
         boolean methodLacksPayload = ! methodRequiresPayload;
 
-        final List<ContentType> acceptedInboundContentTypes = getAcceptedContentTypes();
+        final List<ContentType> acceptedInboundContentTypes = acceptedContentTypes;
         
         if (! acceptedInboundContentTypes.isEmpty() && methodLacksPayload)
         {
-            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+            return RestResponse.status(HttpResponseStatus.INTERNAL_SERVER_ERROR);
         }
         
         final Optional<HttpContent> content = HttpContent.create(messageBody,
@@ -167,12 +154,22 @@ public class Resource
         {
             if (methodLacksPayload)
             {
-                return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+                return RestResponse.status(HttpResponseStatus.INTERNAL_SERVER_ERROR);
             }
         }
-        else if (! Strings.isNullOrEmpty(messageBody))
+        else if (! messageBody.isEmpty())
+        {
+            return RestResponse.status(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+        else if (bodyStream.isPresent() && ! acceptedInboundContentTypes.isEmpty())
         {
-            return Response.status(Status.UNSUPPORTED_MEDIA_TYPE).build();
+            // The body is still arriving, so only its declared type can be checked.
+            final List<ContentType> requestContentTypes = getRequestContentTypes(headers);
+            if (! requestContentTypes.isEmpty() &&
+                    ! inboundContentTypeResolverStrategy.resolve(requestContentTypes, acceptedInboundContentTypes).isPresent())
+            {
+                return RestResponse.status(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE);
+            }
         }
         
         final ResourceArgs resourceArgs = ResourceArgs.builder()
@@ -180,54 +177,200 @@ public class Resource
                 .resourcePath(resourcePath)
                 .httpMethod(httpMethod)
                 .httpHeaders(headers)
-                .referencedMethod(referencedMethod)
+                .bindingPlan(bindingPlan)
                 .queryParams(queryParams)
+                .asyncResponse(asyncResponse.map(r -> (AsyncResponse) r))
+                .bodyStream(bodyStream)
                 .build();
         
         final Object[] args = resourceArgs.getArgs();
         
-        if (referencedMethod.getParameters().length != args.length)
+        if (! resourceArgs.isComplete())
+        {
+            return RestResponse.status(HttpResponseStatus.BAD_REQUEST);
+        }
+        final Object resourceObj = provider.acquire(eventLoop);
+        boolean pending = false;
+        try
+        {
+            final Object result = invoker.invoke(resourceObj, args);
+            // An asynchronous resource is still at work until its outcome is complete.
+            final Optional<CompletionStage<?>> outcome = asyncResponse.isPresent() ?
+                    Optional.of(asyncResponse.get().getOutcome()) :
+                    (result instanceof CompletionStage ? Optional.of((CompletionStage<?>) result) : Optional.empty());
+            if (outcome.isPresent())
+            {
+                pending = true;
+                outcome.get().whenComplete((value, error) -> provider.release(eventLoop, resourceObj));
+            }
+            return result;
+        }
+        finally
+        {
+            if (! pending) provider.release(eventLoop, resourceObj);
+        }
+    }
+    
+    private RestResponse respond(final Object response, final Optional<HttpHeaders> headers, final ByteBufAllocator alloc)
+    {
+        if (null == response) 
+        {
+            return RestResponse.status(HttpResponseStatus.NO_CONTENT);
+        }
+        else if (response instanceof RestResponse)
+        {
+            return (RestResponse) response;
+        }
+        
+        final List<ContentType> acceptContentTypes = getAcceptContentTypes(headers);
+        final List<ContentType> producesContentTypes = getProducesContentTypes(response);
+        
+        return responseFactory.generate(response, acceptContentTypes, producesContentTypes, alloc, responseSizeHint);
+    }
+    
+    private RestResponse failure(final Exception e, final ByteBufAllocator alloc)
+    {
+        e.printStackTrace();
+        if (e instanceof IOException)
+        {
+            return RestResponse.status(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+        else if (e instanceof StrictParamsMismatchException)
+        {
+            return RestResponse.status(HttpResponseStatus.BAD_REQUEST);
+        }
+        else if (e instanceof InvocationTargetException && e.getCause() instanceof RuntimeJsonMappingException)
         {
-            return Response.status(Status.BAD_REQUEST).build();
+            // An element of a Stream or Iterator body parameter didn't parse.
+            return RestResponse.status(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE);
         }
-        Object resourceObj = referencedClass.getConstructor((Class<?>[])null).newInstance((Object[])null);
-        return referencedMethod.invoke(resourceObj, args);
+        return RestResponse.of(HttpResponseStatus.INTERNAL_SERVER_ERROR, ContentType.TEXT_PLAIN_TYPE, e.toString(), alloc);
     }
     
-    public Response invoke(final String messageBody,
+    public RestResponse invoke(final String messageBody,
             final ResourcePath resourcePath,
             final Optional<HttpHeaders> headers,
             final Map<String, List<String>> queryParams)
     {
+        return invoke(RequestBody.of(messageBody), resourcePath, headers, queryParams, UnpooledByteBufAllocator.DEFAULT);
+    }
+    
+    /**
+     * Invokes the resource.  The body is only read, and only decoded, as far as
+     * the method's parameters need it; the caller still owns it afterwards.  A
+     * response's content is a ByteBuf from alloc, owned by the caller.
+     */
+    public RestResponse invoke(final RequestBody messageBody,
+            final ResourcePath resourcePath,
+            final Optional<HttpHeaders> headers,
+            final Map<String, List<String>> queryParams,
+            final ByteBufAllocator alloc)
+    {
+        return invoke(messageBody, Optional.empty(), resourcePath, headers, queryParams, Optional.empty(), alloc);
+    }
+    
+    /**
+     * As above, for a streaming resource whose body is still arriving: its
+     * InputStream or ReadableByteChannel parameter reads bodyStream.  A pooled
+     * resource's instance comes from the pool of the request's event loop.
+     */
+    public RestResponse invoke(final RequestBody messageBody,
+            final Optional<RequestBodyStream> bodyStream,
+            final ResourcePath resourcePath,
+            final Optional<HttpHeaders> headers,
+            final Map<String, List<String>> queryParams,
+            final Optional<Executor> eventLoop,
+            final ByteBufAllocator alloc)
+    {
+        try
+        {
+            return respond(invokeEndpoint(messageBody, bodyStream, resourcePath, headers, queryParams,
+                    Optional.empty(), eventLoop), headers, alloc);
+        }
+        catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException | ResourceArgsBuilderException
+                | IOException | StrictParamsMismatchException e)
+        {
+            return failure(e, alloc);
+        }
+    }
+    
+    /**
+     * Invokes a resource that returns a CompletionStage or takes a
+     * {@code @Suspended AsyncResponse}.  The returned stage completes with the
+     * negotiated response once the resource's value is available; no thread waits
+     * for it in between.  Timeouts set on the AsyncResponse run on the scheduler,
+     * which is the channel's event loop and so also picks a pooled resource's pool.
+     * A pooled instance goes back to its pool once the outcome is complete.
+     */
+    public CompletionStage<RestResponse> invokeAsync(final RequestBody messageBody,
+            final ResourcePath resourcePath,
+            final Optional<HttpHeaders> headers,
+            final Map<String, List<String>> queryParams,
+            final ScheduledExecutorService scheduler,
+            final ByteBufAllocator alloc)
+    {
+        return invokeAsync(messageBody, Optional.empty(), resourcePath, headers, queryParams, Optional.empty(), scheduler, alloc);
+    }
+    
+    /**
+     * As above.  An AsyncResponse's CompletionCallbacks run when sent completes,
+     * with its failure if it fails; without it, once the response is ready.
+     */
+    public CompletionStage<RestResponse> invokeAsync(final RequestBody messageBody,
+            final Optional<RequestBodyStream> bodyStream,
+            final ResourcePath resourcePath,
+            final Optional<HttpHeaders> headers,
+            final Map<String, List<String>> queryParams,
+            final Optional<CompletionStage<?>> sent,
+            final ScheduledExecutorService scheduler,
+            final ByteBufAllocator alloc)
+    {
+        final Optional<WeaverAsyncResponse> asyncResponse = bindingPlan.isSuspended() ?
+                Optional.of(new WeaverAsyncResponse(scheduler)) : Optional.empty();
+        CompletionStage<?> outcome;
         try
         {
-            Object response = invokeEndpoint(messageBody, resourcePath, headers, queryParams);
-            
-            if (null == response) 
+            final Object result = invokeEndpoint(messageBody, bodyStream, resourcePath, headers, queryParams,
+                    asyncResponse, Optional.of(scheduler));
+            if (asyncResponse.isPresent())
+            {
+                // A suspended method returns nothing, unless the request was refused before it ran.
+                if (null != result) asyncResponse.get().resume(result);
+                outcome = asyncResponse.get().getOutcome();
+            }
+            else if (result instanceof CompletionStage)
             {
-                return Response.status(Status.NO_CONTENT).build();
+                outcome = (CompletionStage<?>) result;
+            }
+            else
+            {
+                outcome = CompletableFuture.completedFuture(result);
             }
-            
-            final List<ContentType> acceptContentTypes = getAcceptContentTypes(headers);
-            final List<ContentType> producesContentTypes = getProducesContentTypes(response);
-            
-            return new ResponseFactory().generate(response, acceptContentTypes, producesContentTypes);            
         }
-        catch (IOException e)
+        catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException | ResourceArgsBuilderException
+                | IOException | StrictParamsMismatchException e)
         {
-            e.printStackTrace();
-            return Response.status(Status.UNSUPPORTED_MEDIA_TYPE).build();
+            return CompletableFuture.completedFuture(failure(e, alloc));
         }
-        catch (StrictParamsMismatchException e)
+        final CompletionStage<RestResponse> result =
+                outcome.handle((value, error) -> null != error ? asyncFailure(error, alloc) : respond(value, headers, alloc));
+        if (asyncResponse.isPresent())
         {
-            e.printStackTrace();
-            return Response.status(Status.BAD_REQUEST).build();
+            (sent.isPresent() ? sent.get() : result).whenComplete(
+                    (value, error) -> asyncResponse.get().sent(Optional.ofNullable(error)));
         }
-        catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException | ResourceArgsBuilderException e)
+        return result;
+    }
+    
+    private RestResponse asyncFailure(final Throwable error, final ByteBufAllocator alloc)
+    {
+        final Throwable cause = error instanceof CompletionException && null != error.getCause() ? error.getCause() : error;
+        if (cause instanceof WebApplicationException)
         {
-            e.printStackTrace();
-            return Response.status(Status.INTERNAL_SERVER_ERROR).entity(e).build();
+            return RestResponse.from(((WebApplicationException) cause).getResponse(), alloc);
         }
+        log.warn("Asynchronous resource failed", cause);
+        return RestResponse.of(HttpResponseStatus.INTERNAL_SERVER_ERROR, ContentType.TEXT_PLAIN_TYPE, cause.toString(), alloc);
     }
     
     public Optional<String> getPathParam(final String name)
@@ -0,0 +1,13 @@
+package com.zoomulus.weaver.rest.resource;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Creates a new resource instance.  Failures in the resource's own construction
+ * are reported as InvocationTargetException.
+ */
+@FunctionalInterface
+public interface ResourceFactory
+{
+    Object newInstance() throws NoSuchMethodException, InvocationTargetException;
+}
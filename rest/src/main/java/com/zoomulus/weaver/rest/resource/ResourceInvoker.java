@@ -0,0 +1,159 @@
+package com.zoomulus.weaver.rest.resource;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+
+/**
+ * Calls a resource method through handles resolved once at scan time instead of
+ * going through Constructor.newInstance() and Method.invoke() on every request.
+ *
+ * The endpoint is bound as a MethodHandle spread over an Object[] of arguments.
+ * The no-arg constructor is spun into a Supplier with LambdaMetafactory when the
+ * resource class is public and visible from this class loader, and is otherwise
+ * called through a MethodHandle.  Exceptions thrown by the resource are wrapped
+ * in InvocationTargetException, the same as with reflection.
+ */
+public final class ResourceInvoker
+{
+    private final MethodHandle method;
+    @Getter
+    private final int parameterCount;
+
+    private ResourceInvoker(final Method referencedMethod)
+    {
+        this.parameterCount = referencedMethod.getParameterCount();
+        this.method = methodHandleFor(referencedMethod);
+    }
+
+    public static ResourceInvoker create(final Method referencedMethod)
+    {
+        return new ResourceInvoker(referencedMethod);
+    }
+
+    /**
+     * Returns a factory for new instances of the class, built from its public no-arg
+     * constructor.  If there is none, the factory throws NoSuchMethodException.
+     */
+    public static ResourceFactory constructor(final Class<?> referencedClass)
+    {
+        final Optional<Supplier<Object>> constructor = constructorFor(referencedClass);
+        if (! constructor.isPresent())
+        {
+            return () -> { throw new NoSuchMethodException(referencedClass.getName() + ".<init>()"); };
+        }
+        final Supplier<Object> supplier = constructor.get();
+        return () -> {
+            try
+            {
+                return supplier.get();
+            }
+            catch (RuntimeException | Error e)
+            {
+                throw new InvocationTargetException(e);
+            }
+        };
+    }
+
+    public Object invoke(final Object target, final Object[] args) throws InvocationTargetException
+    {
+        try
+        {
+            return method.invokeExact(target, args);
+        }
+        catch (Throwable t)
+        {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static MethodHandle methodHandleFor(final Method referencedMethod)
+    {
+        try
+        {
+            if (! referencedMethod.isAccessible()) referencedMethod.setAccessible(true);
+            MethodHandle mh = MethodHandles.lookup().unreflect(referencedMethod);
+            if (Modifier.isStatic(referencedMethod.getModifiers()))
+            {
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            final int n = referencedMethod.getParameterCount();
+            return mh.asType(MethodType.genericMethodType(n + 1))
+                    .asSpreader(Object[].class, n);
+        }
+        catch (IllegalAccessException | SecurityException e)
+        {
+            throw new IllegalArgumentException("Cannot access resource method " + referencedMethod, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<Supplier<Object>> constructorFor(final Class<?> referencedClass)
+    {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final MethodHandle ctor;
+        try
+        {
+            final java.lang.reflect.Constructor<?> c = referencedClass.getConstructor();
+            if (isLinkable(referencedClass))
+            {
+                try
+                {
+                    final CallSite site = LambdaMetafactory.metafactory(lookup,
+                            "get",
+                            MethodType.methodType(Supplier.class),
+                            MethodType.methodType(Object.class),
+                            lookup.unreflectConstructor(c),
+                            MethodType.methodType(referencedClass));
+                    return Optional.of((Supplier<Object>) site.getTarget().invokeExact());
+                }
+                catch (Throwable t) { }
+            }
+            c.setAccessible(true);
+            ctor = lookup.unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException | SecurityException e)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(() -> {
+            try
+            {
+                return ctor.invokeExact();
+            }
+            catch (RuntimeException | Error e)
+            {
+                throw e;
+            }
+            catch (Throwable t)
+            {
+                throw new IllegalStateException(t);
+            }
+        });
+    }
+
+    // A spun lambda class links against our class loader, so the resource class
+    // must be public and resolve to the same class from here.
+    private static boolean isLinkable(final Class<?> referencedClass)
+    {
+        if (! Modifier.isPublic(referencedClass.getModifiers())) return false;
+        try
+        {
+            return referencedClass == Class.forName(referencedClass.getName(), false,
+                    ResourceInvoker.class.getClassLoader());
+        }
+        catch (ClassNotFoundException | LinkageError e)
+        {
+            return false;
+        }
+    }
+}
@@ -20,16 +20,23 @@ import com.google.common.collect.Maps;
 public class ResourcePath
 {
     private final String path;
-    private final Map<String, PathSegment> pathSegments;
-    private final Map<String, String> values;
-    private final Map<String, String> matrixParams;
+    private Map<String, PathSegment> pathSegments;
+    private Map<String, String> values;
+    private Map<String, String> matrixParams;
+    
+    // Set when the path was matched by a ResourceRouter; the maps above are then
+    // only built if something asks for more than a lookup by name.
+    private final int pathEnd;
+    private final int[] segments;
+    private final int segmentCount;
+    private final String[] paramNames;
     
     private ResourcePath(final String path)
     {
         this(path, Maps.newHashMap(), Maps.newHashMap(), Maps.newHashMap());
     }
     
-    private ResourcePath(final String path,
+    ResourcePath(final String path,
             final Map<String, PathSegment> pathSegments,
             final Map<String, String> values,
             final Map<String, String> matrixParams)
@@ -38,51 +45,161 @@ public class ResourcePath
         this.pathSegments = pathSegments;
         this.values = values;
         this.matrixParams = matrixParams;
+        this.pathEnd = path.length();
+        this.segments = null;
+        this.segmentCount = 0;
+        this.paramNames = null;
+    }
+    
+    ResourcePath(final String path,
+            final int pathEnd,
+            final int[] segments,
+            final int segmentCount,
+            final String[] paramNames)
+    {
+        this.path = path;
+        this.pathEnd = pathEnd;
+        this.segments = segments;
+        this.segmentCount = segmentCount;
+        this.paramNames = paramNames;
     }
     
     public String toString()
     {
-        return path;
+        return pathEnd == path.length() ? path : path.substring(0, pathEnd);
     }
     
     public Set<String> keySet()
     {
-        return values.keySet();
+        return valueMap().keySet();
     }
     
     public Collection<String> values()
     {
-        return values.values();
+        return valueMap().values();
     }
     
     public Set<Entry<String, String>> entrySet()
     {
-        return values.entrySet();
+        return valueMap().entrySet();
     }
     
     public String get(final String key)
     {
-        return values.get(key);
+        if (null != values) return values.get(key);
+        
+        final int idx = lastCaptureIndex(key);
+        return -1 == idx ? null : path.substring(valueStart(idx), valueEnd(idx));
     }
     
     public boolean hasMatrixParams()
     {
-        return ! matrixParams.isEmpty();
+        return ! matrixParamMap().isEmpty();
     }
     
     public Set<String> matrixParamKeySet()
     {
-        return matrixParams.keySet();
+        return matrixParamMap().keySet();
     }
     
     public String matrixParamGet(final String key)
     {
-        return matrixParams.get(key);
+        if (null != matrixParams) return matrixParams.get(key);
+        
+        // Only the first matrix parameter of a segment is recognised, and later
+        // segments win over earlier ones.
+        for (int i=segmentCount-1; i>=0; i--)
+        {
+            final int paramStart = valueEnd(i) + 1;
+            final int segmentEnd = segmentEnd(i);
+            if (paramStart >= segmentEnd) continue;
+            final int paramEnd = indexOf(';', paramStart, segmentEnd);
+            final int eq = indexOf('=', paramStart, paramEnd);
+            if (eq == paramEnd) continue;
+            if (eq - paramStart == key.length() && path.regionMatches(paramStart, key, 0, key.length()))
+            {
+                return path.substring(eq + 1, paramEnd);
+            }
+        }
+        return null;
     }
     
     public Optional<PathSegment> getPathSegment(final String pathParamName)
     {
-        return Optional.ofNullable(pathSegments.get(pathParamName)); 
+        if (null != pathSegments) return Optional.ofNullable(pathSegments.get(pathParamName));
+        
+        final int idx = lastCaptureIndex(pathParamName);
+        return -1 == idx ? Optional.empty() :
+            Optional.of(new PathSegmentImpl(path.substring(valueStart(idx), segmentEnd(idx)), false));
+    }
+    
+    private int valueStart(final int idx)
+    {
+        return segments[idx * PathCaptures.STRIDE];
+    }
+    
+    private int valueEnd(final int idx)
+    {
+        return segments[idx * PathCaptures.STRIDE + 1];
+    }
+    
+    private int segmentEnd(final int idx)
+    {
+        return segments[idx * PathCaptures.STRIDE + 2];
+    }
+    
+    private int indexOf(final char c, final int from, final int to)
+    {
+        for (int i=from; i<to; i++)
+        {
+            if (c == path.charAt(i)) return i;
+        }
+        return to;
+    }
+    
+    private int lastCaptureIndex(final String name)
+    {
+        for (int i=segmentCount-1; i>=0; i--)
+        {
+            if (name.equals(paramNames[i])) return i;
+        }
+        return -1;
+    }
+    
+    private Map<String, String> valueMap()
+    {
+        if (null == values)
+        {
+            final Map<String, String> m = Maps.newHashMap();
+            for (int i=0; i<segmentCount; i++)
+            {
+                if (null != paramNames[i]) m.put(paramNames[i], path.substring(valueStart(i), valueEnd(i)));
+            }
+            values = m;
+        }
+        return values;
+    }
+    
+    private Map<String, String> matrixParamMap()
+    {
+        if (null == matrixParams)
+        {
+            final Map<String, String> m = Maps.newHashMap();
+            for (int i=0; i<segmentCount; i++)
+            {
+                final String[] ppParts = path.substring(valueStart(i), segmentEnd(i)).split(";");
+                if (ppParts.length > 1)
+                {
+                    final String[] matrixParamParts = ppParts[1].split("=", 2);
+                    if (matrixParamParts.length >= 2)
+                    {
+                        m.put(matrixParamParts[0], matrixParamParts[1]);
+                    }
+                }
+            }
+            matrixParams = m;
+        }
+        return matrixParams;
     }
     
     public static ResourcePathParser withPattern(final String pattern)
@@ -0,0 +1,196 @@
+package com.zoomulus.weaver.rest.resource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+import com.google.inject.Scopes;
+import com.zoomulus.weaver.rest.annotations.Pooled;
+
+/**
+ * Supplies the instance a request is invoked on, according to the resource
+ * class's {@link ResourceScope}.  One provider is built per resource class, so
+ * every endpoint method of a singleton resource shares the same instance.
+ * Singleton and pooled resources must not keep per-request state in fields.
+ */
+public abstract class ResourceProvider
+{
+    public abstract Object acquire() throws NoSuchMethodException, InvocationTargetException;
+
+    public void release(final Object instance) { }
+
+    /**
+     * As acquire(), for a request that belongs to a channel on eventLoop.
+     * Pooled resources keep a pool per event loop.
+     */
+    public Object acquire(final Optional<Executor> eventLoop) throws NoSuchMethodException, InvocationTargetException
+    {
+        return acquire();
+    }
+
+    public void release(final Optional<Executor> eventLoop, final Object instance)
+    {
+        release(instance);
+    }
+
+    /**
+     * Resolves the scope and instance factory for a resource class.  With an
+     * Injector, instances come from the Injector's provider for the class,
+     * looked up here rather than per request.  A {@link Pooled} size below 1
+     * is an IllegalArgumentException.
+     */
+    public static ResourceProvider forClass(final Class<?> resourceClass, final Optional<Injector> injector)
+    {
+        ResourceScope scope = ResourceScope.of(resourceClass);
+        final ResourceFactory factory;
+        if (injector.isPresent())
+        {
+            final Binding<?> binding = injector.get().getBinding(resourceClass);
+            if (Scopes.isSingleton(binding)) scope = ResourceScope.SINGLETON;
+            factory = injected(binding.getProvider());
+        }
+        else
+        {
+            factory = ResourceInvoker.constructor(resourceClass);
+        }
+
+        switch (scope)
+        {
+            case SINGLETON:
+                return singleton(factory);
+            case POOLED:
+                final int size = resourceClass.getAnnotation(Pooled.class).size();
+                if (size < 1)
+                {
+                    throw new IllegalArgumentException("@Pooled size of " + resourceClass.getName() + " must be at least 1, was " + size);
+                }
+                return pooled(factory, size);
+            default:
+                return perRequest(factory);
+        }
+    }
+
+    public static ResourceProvider perRequest(final ResourceFactory factory)
+    {
+        return new ResourceProvider() {
+            @Override
+            public Object acquire() throws NoSuchMethodException, InvocationTargetException
+            {
+                return factory.newInstance();
+            }
+        };
+    }
+
+    public static ResourceProvider singleton(final ResourceFactory factory)
+    {
+        return new SingletonProvider(factory);
+    }
+
+    public static ResourceProvider pooled(final ResourceFactory factory, final int size)
+    {
+        if (size < 1) throw new IllegalArgumentException("Pool size must be at least 1, was " + size);
+        return new PooledProvider(factory, size);
+    }
+
+    private static ResourceFactory injected(final Provider<?> provider)
+    {
+        return () -> {
+            try
+            {
+                return provider.get();
+            }
+            catch (ProvisionException e)
+            {
+                throw new InvocationTargetException(e);
+            }
+        };
+    }
+
+    // Created on first use, so a resource that can't be constructed fails its
+    // requests the same way a per-request resource does.
+    private static class SingletonProvider extends ResourceProvider
+    {
+        private final ResourceFactory factory;
+        private volatile Object instance;
+
+        SingletonProvider(final ResourceFactory factory)
+        {
+            this.factory = factory;
+        }
+
+        @Override
+        public Object acquire() throws NoSuchMethodException, InvocationTargetException
+        {
+            Object result = instance;
+            if (null == result)
+            {
+                synchronized (this)
+                {
+                    result = instance;
+                    if (null == result)
+                    {
+                        result = factory.newInstance();
+                        instance = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    // Each event loop keeps its own bounded stack of idle instances, whichever
+    // thread the request runs on, so a worker pool or virtual threads still
+    // reuse them.  Requests without an event loop share one more stack.
+    private static class PooledProvider extends ResourceProvider
+    {
+        private final ResourceFactory factory;
+        private final int size;
+        private final Map<Object, BlockingDeque<Object>> pools = Maps.newConcurrentMap();
+
+        PooledProvider(final ResourceFactory factory, final int size)
+        {
+            this.factory = factory;
+            this.size = size;
+        }
+
+        @Override
+        public Object acquire() throws NoSuchMethodException, InvocationTargetException
+        {
+            return acquire(Optional.empty());
+        }
+
+        @Override
+        public void release(final Object instance)
+        {
+            release(Optional.empty(), instance);
+        }
+
+        @Override
+        public Object acquire(final Optional<Executor> eventLoop) throws NoSuchMethodException, InvocationTargetException
+        {
+            final Object instance = pool(eventLoop).pollFirst();
+            return null != instance ? instance : factory.newInstance();
+        }
+
+        @Override
+        public void release(final Optional<Executor> eventLoop, final Object instance)
+        {
+            // Dropped if the pool is full.
+            pool(eventLoop).offerFirst(instance);
+        }
+
+        private BlockingDeque<Object> pool(final Optional<Executor> eventLoop)
+        {
+            return pools.computeIfAbsent(eventLoop.isPresent() ? eventLoop.get() : this,
+                    key -> new LinkedBlockingDeque<>(size));
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.zoomulus.weaver.rest.resource;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Segment trie compiled from the scanned resources.  Literal segments are looked
+ * up by hash, "{param}" segments capture anything and "{param: regex}" segments
+ * are matched against a precompiled Pattern, so routing cost depends on the depth
+ * of the request path rather than on the number of registered resources.
+ */
+public class ResourceRouter
+{
+    private final Node root = new Node();
+    private int regexCount = 0;
+
+    private ResourceRouter(final Map<ResourceIdentifier, Resource> resources)
+    {
+        for (final Entry<ResourceIdentifier, Resource> entry : resources.entrySet())
+        {
+            add(entry.getKey(), entry.getValue());
+        }
+        root.freeze();
+    }
+
+    public static ResourceRouter create(final Map<ResourceIdentifier, Resource> resources)
+    {
+        return new ResourceRouter(resources);
+    }
+
+    private void add(final ResourceIdentifier identifier, final Resource resource)
+    {
+        final List<String> patternParts = Lists.newArrayList();
+        for (final String patternPart : identifier.getPath().split("/"))
+        {
+            if (0 != patternPart.length()) patternParts.add(patternPart);
+        }
+
+        final String[] paramNames = new String[patternParts.size()];
+        Node node = root;
+        for (int i=0; i<patternParts.size(); i++)
+        {
+            final String patternPart = patternParts.get(i);
+            if (patternPart.startsWith("{") && patternPart.endsWith("}"))
+            {
+                final int colon = patternPart.indexOf(':');
+                if (-1 != colon)
+                {
+                    paramNames[i] = patternPart.substring(1, colon).trim();
+                    node = regexChild(node, patternPart.substring(colon+1, patternPart.length()-1).trim());
+                }
+                else
+                {
+                    paramNames[i] = patternPart.substring(1, patternPart.length()-1);
+                    node = node.captureChild();
+                }
+            }
+            else
+            {
+                node = node.literalChild(patternPart);
+            }
+        }
+        node.routes.put(identifier.getMethod(), new Route(resource, paramNames));
+    }
+
+    private Node regexChild(final Node node, final String regex)
+    {
+        for (final RegexNode child : node.regexList)
+        {
+            if (child.regex.equals(regex)) return child;
+        }
+        final RegexNode child = new RegexNode(regexCount++, regex);
+        node.regexList.add(child);
+        return child;
+    }
+
+    /**
+     * Matches the path portion (up to pathEnd) of a request URI, leaving the
+     * outcome in the supplied captures.  Nothing is allocated unless no resource
+     * accepts the request's method.
+     */
+    public RouteStatus match(final HttpMethod method,
+            final String uri,
+            final int pathEnd,
+            final PathCaptures captures)
+    {
+        captures.scan(uri, pathEnd);
+        if (visit(root, 0, method, captures))
+        {
+            return RouteStatus.FOUND;
+        }
+        return null != captures.allowedMethods ? RouteStatus.METHOD_NOT_ALLOWED : RouteStatus.NOT_FOUND;
+    }
+
+    /**
+     * Finds the resource for a request.  The result is empty if no resource path
+     * matches; if a path matches but not for this HTTP method, the result has no
+     * resource and lists the methods that would have been accepted.
+     */
+    public Optional<RouteMatch> route(final HttpMethod method, final String requestPath)
+    {
+        if (null == requestPath)
+        {
+            return Optional.empty();
+        }
+
+        final PathCaptures captures = new PathCaptures();
+        switch (match(method, requestPath, requestPath.length(), captures))
+        {
+            case FOUND:
+                return Optional.of(new RouteMatch(Optional.of(captures.getResource()),
+                        Optional.of(captures.toResourcePath()),
+                        captures.getAllowedMethods()));
+            case METHOD_NOT_ALLOWED:
+                return Optional.of(new RouteMatch(Optional.empty(),
+                        Optional.empty(),
+                        captures.getAllowedMethods()));
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private boolean visit(final Node node, final int depth, final HttpMethod method, final PathCaptures captures)
+    {
+        if (depth == captures.segmentCount)
+        {
+            if (node.routes.isEmpty()) return false;
+            final Route route = node.routes.get(method);
+            if (null != route)
+            {
+                captures.found(route, node);
+                return true;
+            }
+            captures.allow(node.allowedMethods);
+            return false;
+        }
+
+        final int start = captures.valueStart(depth);
+        final int end = captures.valueEnd(depth);
+        final Node literal = node.literals.get(captures.path, start, end);
+        if (null != literal && visit(literal, depth+1, method, captures))
+        {
+            return true;
+        }
+        for (final RegexNode regexNode : node.regexes)
+        {
+            if (captures.matcher(this, regexCount, regexNode, start, end).matches()
+                    && visit(regexNode, depth+1, method, captures))
+            {
+                return true;
+            }
+        }
+        return null != node.capture && visit(node.capture, depth+1, method, captures);
+    }
+
+    static class Node
+    {
+        private final Map<String, Node> literalMap = Maps.newHashMap();
+        private final List<RegexNode> regexList = Lists.newArrayList();
+        LiteralTable literals;
+        RegexNode[] regexes;
+        Node capture = null;
+        final Map<HttpMethod, Route> routes = Maps.newHashMap();
+        Set<HttpMethod> allowedMethods = ImmutableSet.of();
+
+        void freeze()
+        {
+            literals = new LiteralTable(literalMap);
+            regexes = regexList.toArray(new RegexNode[regexList.size()]);
+            allowedMethods = ImmutableSet.copyOf(routes.keySet());
+            for (final Node child : literalMap.values()) child.freeze();
+            for (final Node child : regexList) child.freeze();
+            if (null != capture) capture.freeze();
+        }
+
+        Node literalChild(final String literal)
+        {
+            Node child = literalMap.get(literal);
+            if (null == child)
+            {
+                child = new Node();
+                literalMap.put(literal, child);
+            }
+            return child;
+        }
+
+        Node captureChild()
+        {
+            if (null == capture)
+            {
+                capture = new Node();
+            }
+            return capture;
+        }
+    }
+
+    static class RegexNode extends Node
+    {
+        final int id;
+        final String regex;
+        final Pattern pattern;
+
+        RegexNode(final int id, final String regex)
+        {
+            this.id = id;
+            this.regex = regex;
+            this.pattern = Pattern.compile(regex);
+        }
+    }
+
+    static class Route
+    {
+        final Resource resource;
+        final String[] paramNames;
+
+        Route(final Resource resource, final String[] paramNames)
+        {
+            this.resource = resource;
+            this.paramNames = paramNames;
+        }
+    }
+
+    /**
+     * Open-addressed table of literal segments that can be probed with a region of
+     * the request path, so no substring is needed to look a segment up.
+     */
+    static class LiteralTable
+    {
+        private final String[] keys;
+        private final int[] hashes;
+        private final Node[] nodes;
+        private final int mask;
+
+        LiteralTable(final Map<String, Node> literals)
+        {
+            int capacity = 2;
+            while (capacity < literals.size() * 2) capacity <<= 1;
+            keys = new String[capacity];
+            hashes = new int[capacity];
+            nodes = new Node[capacity];
+            mask = capacity - 1;
+            for (final Entry<String, Node> entry : literals.entrySet())
+            {
+                final String key = entry.getKey();
+                final int hash = key.hashCode();
+                int idx = spread(hash) & mask;
+                while (null != keys[idx]) idx = (idx + 1) & mask;
+                keys[idx] = key;
+                hashes[idx] = hash;
+                nodes[idx] = entry.getValue();
+            }
+        }
+
+        Node get(final String s, final int start, final int end)
+        {
+            int hash = 0;
+            for (int i=start; i<end; i++)
+            {
+                hash = 31 * hash + s.charAt(i);
+            }
+            final int len = end - start;
+            int idx = spread(hash) & mask;
+            String key;
+            while (null != (key = keys[idx]))
+            {
+                if (hash == hashes[idx] && key.length() == len && key.regionMatches(0, s, start, len))
+                {
+                    return nodes[idx];
+                }
+                idx = (idx + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int spread(final int hash)
+        {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
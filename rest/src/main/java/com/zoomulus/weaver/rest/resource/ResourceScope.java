@@ -0,0 +1,31 @@
+package com.zoomulus.weaver.rest.resource;
+
+import com.zoomulus.weaver.rest.annotations.Pooled;
+
+/**
+ * Lifecycle of resource instances.  Resolved once per resource class at scan
+ * time: classes annotated with javax.inject.Singleton or com.google.inject.Singleton
+ * (or bound as singletons in the Injector) share one instance, classes annotated
+ * with {@link Pooled} reuse instances from a pool per event loop, and all others get
+ * a new instance for each request.
+ */
+public enum ResourceScope
+{
+    SINGLETON,
+    POOLED,
+    REQUEST;
+
+    public static ResourceScope of(final Class<?> resourceClass)
+    {
+        if (null != resourceClass.getAnnotation(javax.inject.Singleton.class)
+                || null != resourceClass.getAnnotation(com.google.inject.Singleton.class))
+        {
+            return SINGLETON;
+        }
+        if (null != resourceClass.getAnnotation(Pooled.class))
+        {
+            return POOLED;
+        }
+        return REQUEST;
+    }
+}
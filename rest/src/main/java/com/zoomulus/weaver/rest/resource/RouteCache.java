@@ -0,0 +1,132 @@
+package com.zoomulus.weaver.rest.resource;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.zoomulus.weaver.rest.resource.PathCaptures.CachedRoute;
+
+/**
+ * Bounded cache of resolved routes keyed by HTTP method and raw request path,
+ * so hot URLs are routed with a single hash lookup.  Only successful matches
+ * are cached; 404s and 405s always go through the router.
+ *
+ * A cache belongs to one ResourceRouter, and routers are immutable, so building
+ * a new application model (and therefore a new router) always starts with an
+ * empty cache.  Reads don't lock; eviction is Guava's approximate LRU.
+ */
+public class RouteCache
+{
+    private final ResourceRouter router;
+    private final Cache<RouteKey, CachedRoute> cache;
+    
+    public RouteCache(final ResourceRouter router, final long maximumSize)
+    {
+        this.router = router;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+    
+    public RouteStatus match(final HttpMethod method,
+            final String uri,
+            final int pathEnd,
+            final PathCaptures captures)
+    {
+        final RouteKey key = new RouteKey(method, uri, pathEnd);
+        final CachedRoute cached = cache.getIfPresent(key);
+        if (null != cached)
+        {
+            captures.restore(cached, uri, pathEnd);
+            return RouteStatus.FOUND;
+        }
+        
+        final RouteStatus status = router.match(method, uri, pathEnd, captures);
+        if (RouteStatus.FOUND == status)
+        {
+            cache.put(key.compact(), captures.snapshot());
+        }
+        return status;
+    }
+    
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+    
+    public long size()
+    {
+        return cache.size();
+    }
+    
+    public long hitCount()
+    {
+        return cache.stats().hitCount();
+    }
+    
+    public long missCount()
+    {
+        return cache.stats().missCount();
+    }
+    
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+    
+    private static final class RouteKey
+    {
+        private final HttpMethod method;
+        private final String uri;
+        private final int pathEnd;
+        private final int hash;
+        
+        RouteKey(final HttpMethod method, final String uri, final int pathEnd)
+        {
+            this.method = method;
+            this.uri = uri;
+            this.pathEnd = pathEnd;
+            int h = method.hashCode();
+            for (int i=0; i<pathEnd; i++)
+            {
+                h = 31 * h + uri.charAt(i);
+            }
+            this.hash = h;
+        }
+        
+        private RouteKey(final RouteKey key)
+        {
+            this.method = key.method;
+            this.uri = key.uri.substring(0, key.pathEnd);
+            this.pathEnd = key.pathEnd;
+            this.hash = key.hash;
+        }
+        
+        // Lookups probe with the full request URI; only keys that get stored
+        // are trimmed down to the path.
+        RouteKey compact()
+        {
+            return pathEnd == uri.length() ? this : new RouteKey(this);
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o) return true;
+            if (! (o instanceof RouteKey)) return false;
+            final RouteKey rhs = (RouteKey) o;
+            return hash == rhs.hash
+                    && pathEnd == rhs.pathEnd
+                    && method.equals(rhs.method)
+                    && uri.regionMatches(0, rhs.uri, 0, pathEnd);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.zoomulus.weaver.rest.resource;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Optional;
+import java.util.Set;
+
+import lombok.Value;
+
+@Value
+public class RouteMatch
+{
+    Optional<Resource> resource;
+    Optional<ResourcePath> resourcePath;
+    Set<HttpMethod> allowedMethods;
+    
+    public boolean isMethodAllowed()
+    {
+        return resource.isPresent();
+    }
+}
@@ -0,0 +1,8 @@
+package com.zoomulus.weaver.rest.resource;
+
+public enum RouteStatus
+{
+    FOUND,
+    METHOD_NOT_ALLOWED,
+    NOT_FOUND
+}
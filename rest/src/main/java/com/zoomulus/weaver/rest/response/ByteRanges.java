@@ -0,0 +1,202 @@
+package com.zoomulus.weaver.rest.response;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.CharsetUtil;
+
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * The byte ranges a request's Range header asks for, resolved against the
+ * length of the entity being sent.  Overlapping and adjacent ranges are merged.
+ * None of them may be satisfiable, which is a 416; more than one is sent as
+ * multipart/byteranges, with the parts framed by the headers made here.
+ */
+public class ByteRanges
+{
+    public static final String MULTIPART_BYTERANGES = "multipart/byteranges";
+
+    /**
+     * More ranges than this are more likely an attack than a download, so the
+     * whole entity is sent instead.
+     */
+    private static final int MAX_RANGES = 32;
+
+    @Value
+    public static class ByteRange
+    {
+        long start;
+        long length;
+    }
+
+    @Getter
+    private final List<ByteRange> ranges;
+    @Getter
+    private final long entityLength;
+    @Getter
+    private final String boundary;
+
+    private ByteRanges(final List<ByteRange> ranges, final long entityLength)
+    {
+        this.ranges = ranges;
+        this.entityLength = entityLength;
+        boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * The ranges of a Range header, or empty if the header isn't a bytes range
+     * set, in which case the request is served whole.
+     */
+    public static Optional<ByteRanges> parse(@NonNull final String header, final long entityLength)
+    {
+        final String spec = header.trim();
+        if (! spec.regionMatches(true, 0, "bytes=", 0, 6)) return Optional.empty();
+
+        final List<ByteRange> ranges = Lists.newArrayList();
+        int count = 0;
+        for (final String part : spec.substring(6).split(","))
+        {
+            final String range = part.trim();
+            if (range.isEmpty()) continue;
+            if (++count > MAX_RANGES) return Optional.empty();
+            final int dash = range.indexOf('-');
+            if (dash < 0) return Optional.empty();
+            try
+            {
+                final long first;
+                final long last;
+                if (0 == dash)
+                {
+                    // The final n bytes
+                    final long suffix = Long.parseLong(range.substring(1));
+                    if (suffix < 0) return Optional.empty();
+                    if (0 == suffix) continue;
+                    first = Math.max(0, entityLength - suffix);
+                    last = entityLength - 1;
+                }
+                else
+                {
+                    first = Long.parseLong(range.substring(0, dash));
+                    final String lastSpec = range.substring(dash + 1);
+                    if (lastSpec.isEmpty())
+                    {
+                        last = entityLength - 1;
+                    }
+                    else
+                    {
+                        final long requestedLast = Long.parseLong(lastSpec);
+                        if (requestedLast < first) return Optional.empty();
+                        last = Math.min(entityLength - 1, requestedLast);
+                    }
+                    if (first < 0) return Optional.empty();
+                }
+                if (first < entityLength)
+                {
+                    ranges.add(new ByteRange(first, last - first + 1));
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                return Optional.empty();
+            }
+        }
+        if (0 == count) return Optional.empty();
+        return Optional.of(new ByteRanges(merge(ranges), entityLength));
+    }
+
+    private static List<ByteRange> merge(final List<ByteRange> ranges)
+    {
+        if (ranges.size() < 2) return ImmutableList.copyOf(ranges);
+        Collections.sort(ranges, Comparator.comparingLong(ByteRange::getStart));
+        final List<ByteRange> merged = Lists.newArrayList();
+        ByteRange current = ranges.get(0);
+        for (final ByteRange next : ranges.subList(1, ranges.size()))
+        {
+            final long end = current.getStart() + current.getLength();
+            if (next.getStart() <= end)
+            {
+                current = new ByteRange(current.getStart(),
+                        Math.max(end, next.getStart() + next.getLength()) - current.getStart());
+            }
+            else
+            {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return ImmutableList.copyOf(merged);
+    }
+
+    /**
+     * Whether a response may be served in part, given the request's If-Range.
+     * Only a date exactly matching the response's Last-Modified matches; this
+     * server doesn't send ETags, so an entity tag never does.
+     */
+    public static boolean ifRangeMatches(final Optional<String> ifRange, final Optional<String> lastModified)
+    {
+        return ! ifRange.isPresent() || (lastModified.isPresent() && lastModified.get().equals(ifRange.get().trim()));
+    }
+
+    public boolean isSatisfiable()
+    {
+        return ! ranges.isEmpty();
+    }
+
+    public boolean isMultipart()
+    {
+        return ranges.size() > 1;
+    }
+
+    public String contentRange(final ByteRange range)
+    {
+        return "bytes " + range.getStart() + "-" + (range.getStart() + range.getLength() - 1) + "/" + entityLength;
+    }
+
+    public String unsatisfiedContentRange()
+    {
+        return "bytes */" + entityLength;
+    }
+
+    public String multipartContentType()
+    {
+        return MULTIPART_BYTERANGES + "; boundary=" + boundary;
+    }
+
+    /**
+     * The boundary and headers that precede a part.
+     */
+    public ByteBuf partHeader(final ByteBufAllocator alloc, final Optional<String> contentType, final ByteRange range)
+    {
+        final StringBuilder sb = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+        if (contentType.isPresent())
+        {
+            sb.append("Content-Type: ").append(contentType.get()).append("\r\n");
+        }
+        sb.append("Content-Range: ").append(contentRange(range)).append("\r\n\r\n");
+        return ascii(alloc, sb.toString());
+    }
+
+    public ByteBuf closingBoundary(final ByteBufAllocator alloc)
+    {
+        return ascii(alloc, "\r\n--" + boundary + "--\r\n");
+    }
+
+    private static ByteBuf ascii(final ByteBufAllocator alloc, final String s)
+    {
+        return ByteBufUtil.encodeString(alloc, CharBuffer.wrap(s), CharsetUtil.US_ASCII);
+    }
+}
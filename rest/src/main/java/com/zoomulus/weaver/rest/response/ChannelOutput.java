@@ -0,0 +1,15 @@
+package com.zoomulus.weaver.rest.response;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A response body that the resource writes to a channel, like a JAX-RS
+ * StreamingOutput writes to a stream.  It is called on a worker thread while
+ * the response is being sent, and writes block while the client falls behind.
+ */
+@FunctionalInterface
+public interface ChannelOutput
+{
+    void write(final WritableByteChannel channel) throws IOException;
+}
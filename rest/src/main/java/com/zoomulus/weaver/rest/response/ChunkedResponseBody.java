@@ -0,0 +1,267 @@
+package com.zoomulus.weaver.rest.response;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import lombok.NonNull;
+
+import com.google.common.collect.Queues;
+
+/**
+ * A response body produced by a StreamingOutput on a worker thread and sent
+ * with chunked transfer encoding.  The output's writes are cut into chunks of
+ * chunkSize bytes; ChunkedWriteHandler takes them only while the channel is
+ * writable, and once capacity chunks are waiting the writer blocks until the
+ * client catches up.  So however large the body, about capacity chunks of it
+ * are in memory.
+ *
+ * Netty's HttpChunkedInput can't wait for chunks that haven't been written
+ * yet, so this frames the HTTP chunks itself.
+ */
+public class ChunkedResponseBody implements ChunkedInput<HttpContent>
+{
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final ByteBufAllocator alloc;
+    private final Runnable wakeup;
+    private final int chunkSize;
+    private final int capacity;
+    private final Queue<ByteBuf> chunks = Queues.newArrayDeque();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    private boolean finished = false;
+    private boolean sentLast = false;
+    private boolean closed = false;
+    private Throwable failure = null;
+
+    /**
+     * wakeup is run whenever a chunk becomes available, to resume the transfer.
+     */
+    public ChunkedResponseBody(@NonNull final ByteBufAllocator alloc, @NonNull final Runnable wakeup)
+    {
+        this(alloc, wakeup, DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+    }
+
+    public ChunkedResponseBody(@NonNull final ByteBufAllocator alloc,
+            @NonNull final Runnable wakeup,
+            final int chunkSize,
+            final int capacity)
+    {
+        if (chunkSize < 1 || capacity < 1) throw new IllegalArgumentException("Chunk size and capacity must be positive");
+        this.alloc = alloc;
+        this.wakeup = wakeup;
+        this.chunkSize = chunkSize;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Runs output to the end, on the calling thread.  If it fails the body is
+     * cut short, and the response fails with the output's exception.
+     */
+    public void writeFrom(@NonNull final StreamingOutput output)
+    {
+        final Output out = new Output();
+        try
+        {
+            output.write(out);
+            out.close();
+        }
+        catch (Exception e)
+        {
+            out.discard();
+            end(e);
+        }
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception
+    {
+        lock.lock();
+        try
+        {
+            if (null != failure) throw new IOException("Response output failed", failure);
+            return sentLast;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public HttpContent readChunk(final ChannelHandlerContext ctx) throws Exception
+    {
+        lock.lock();
+        try
+        {
+            if (null != failure) throw new IOException("Response output failed", failure);
+            final ByteBuf chunk = chunks.poll();
+            if (null != chunk)
+            {
+                notFull.signalAll();
+                return new DefaultHttpContent(chunk);
+            }
+            if (finished && ! sentLast)
+            {
+                sentLast = true;
+                return LastHttpContent.EMPTY_LAST_CONTENT;
+            }
+            // Nothing written yet; the writer wakes the transfer up when there is.
+            return null;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called once the response has been sent, or has failed.  A writer still
+     * running gets an IOException on its next write.
+     */
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            while (! chunks.isEmpty())
+            {
+                chunks.poll().release();
+            }
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void put(final ByteBuf chunk) throws IOException
+    {
+        lock.lock();
+        try
+        {
+            while (! closed && chunks.size() >= capacity)
+            {
+                notFull.await();
+            }
+            if (closed)
+            {
+                chunk.release();
+                throw new ClosedChannelException();
+            }
+            chunks.add(chunk);
+        }
+        catch (InterruptedException e)
+        {
+            chunk.release();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the response", e);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        wakeup.run();
+    }
+
+    private void end(final Throwable cause)
+    {
+        lock.lock();
+        try
+        {
+            finished = true;
+            failure = cause;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        wakeup.run();
+    }
+
+    private class Output extends OutputStream
+    {
+        private ByteBuf buf = null;
+        private boolean done = false;
+
+        @Override
+        public void write(final int b) throws IOException
+        {
+            current().writeByte(b);
+            if (! buf.isWritable()) flush();
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException
+        {
+            while (len > 0)
+            {
+                final ByteBuf current = current();
+                final int n = Math.min(len, current.writableBytes());
+                current.writeBytes(b, off, n);
+                off += n;
+                len -= n;
+                if (! current.isWritable()) flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (null != buf && buf.isReadable())
+            {
+                final ByteBuf chunk = buf;
+                buf = null;
+                put(chunk);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (done) return;
+            flush();
+            done = true;
+            end(null);
+        }
+
+        private ByteBuf current() throws IOException
+        {
+            if (done) throw new IOException("Response output closed");
+            if (null == buf)
+            {
+                buf = alloc.buffer(chunkSize, chunkSize);
+            }
+            return buf;
+        }
+
+        private void discard()
+        {
+            if (null != buf)
+            {
+                buf.release();
+                buf = null;
+            }
+            done = true;
+        }
+    }
+}
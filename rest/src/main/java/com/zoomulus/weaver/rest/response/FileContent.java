@@ -0,0 +1,71 @@
+package com.zoomulus.weaver.rest.response;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A region of an open file to send as a response body.  RestHandler writes it
+ * as a FileRegion, so the kernel copies it straight to the socket, or through
+ * ChunkedNioFile when the channel is encrypted.  The channel is closed once
+ * the region has been sent or the response discarded.
+ */
+@Value
+public class FileContent
+{
+    FileChannel channel;
+    long position;
+    long count;
+    Optional<Long> lastModified;
+
+    /**
+     * The whole file.  Throws NoSuchFileException unless it is a regular file.
+     */
+    public static FileContent of(@NonNull final Path path) throws IOException
+    {
+        if (! Files.isRegularFile(path)) throw new NoSuchFileException(path.toString());
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            return new FileContent(channel, 0, channel.size(), Optional.of(Files.getLastModifiedTime(path).toMillis()));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The rest of the file from the channel's current position.
+     */
+    public static FileContent of(@NonNull final FileChannel channel) throws IOException
+    {
+        final long position = channel.position();
+        return new FileContent(channel, position, Math.max(0, channel.size() - position), Optional.empty());
+    }
+
+    /**
+     * Part of this region, sharing its channel.
+     */
+    public FileContent slice(final long start, final long length)
+    {
+        return new FileContent(channel, position + start, length, lastModified);
+    }
+
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e) { }
+    }
+}
@@ -1,38 +1,115 @@
 package com.zoomulus.weaver.rest.response;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
+import lombok.Getter;
 import lombok.NonNull;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.content.ContentCodec;
 import com.zoomulus.weaver.rest.contenttype.ContentTypeResolverStrategy;
 import com.zoomulus.weaver.rest.contenttype.IntelligentContentTypeResolverStrategy;
 
+/**
+ * Turns whatever a resource returned into a RestResponse.  JSON and XML are
+ * written by Jackson straight into a buffer from the given allocator, and text
+ * is encoded into one; whoever writes the response releases it.
+ *
+ * ByteBuf, ByteBuffer, byte[] and InputStream entities are sent as they are,
+ * as application/octet-stream unless the resource produces something else.  A
+ * returned ByteBuf is released once written, so a resource that keeps its
+ * buffer returns a retained duplicate.  An entity that turns out not to be
+ * acceptable is released, or closed, instead.
+ *
+ * StreamingOutput and ChannelOutput entities aren't run here; they become
+ * streamed responses, also application/octet-stream by default.  Streams,
+ * Iterators and Iterables that would be written as JSON are streamed too, an
+ * element at a time, as a JSON array or, if that was negotiated, as NDJSON.
+ * Collections are already in memory, so they are rendered into one buffer,
+ * which keeps their Content-Length; as NDJSON too, if that was negotiated.
+ *
+ * File, Path and FileChannel entities are sent from the file without being
+ * read; their content type is guessed from the file name unless the resource
+ * produces something else.  A missing file is a 404.
+ *
+ * Everything that depends only on the entity class is worked out on the first
+ * response of that class and cached, so one factory should be shared by all
+ * the resources of an application.
+ */
 public class ResponseFactory
 {
-    private final ContentTypeResolverStrategy contentTypeResolver;
+    private static final int STREAM_CHUNK_SIZE = 8192;
     
-    private static final ObjectMapper jsonMapper = new ObjectMapper();
-    private static final ObjectMapper xmlMapper = new XmlMapper();
+    private final ContentTypeResolverStrategy contentTypeResolver;
+    private final ContentCodec codec;
+    private final ObjectWriter elementWriter;
+    private final Map<Class<?>, Rendering> renderings = Maps.newConcurrentMap();
     
     public ResponseFactory()
     {
-        contentTypeResolver = new IntelligentContentTypeResolverStrategy();
+        this(ContentCodec.defaults());
+    }
+    
+    public ResponseFactory(@NonNull final ContentCodec codec)
+    {
+        this(codec, new IntelligentContentTypeResolverStrategy());
+    }
+    
+    public ResponseFactory(@NonNull final ContentCodec codec,
+            @NonNull final ContentTypeResolverStrategy contentTypeResolver)
+    {
+        this.contentTypeResolver = contentTypeResolver;
+        this.codec = codec;
+        elementWriter = codec.getJsonMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
     
-    public Response generate(
+    public RestResponse generate(
             @NonNull final Object emittedObject,
             final List<ContentType> expectedContentTypes,
             final List<ContentType> providedContentTypes)
+    {
+        return generate(emittedObject, expectedContentTypes, providedContentTypes,
+                UnpooledByteBufAllocator.DEFAULT, new ResponseSizeHint());
+    }
+    
+    public RestResponse generate(
+            @NonNull final Object emittedObject,
+            final List<ContentType> expectedContentTypes,
+            final List<ContentType> providedContentTypes,
+            @NonNull final ByteBufAllocator alloc,
+            @NonNull final ResponseSizeHint sizeHint)
     {
         try
         {
@@ -46,33 +123,66 @@ public class ResponseFactory
             {
                 if (! providedContentTypes.isEmpty() && ! responseContentType.isPresent())
                 {
-                    return Response.status(Status.NOT_ACCEPTABLE).build();
+                    return notAcceptable(((Response) emittedObject).getEntity());
                 }
-                return (Response) emittedObject;
+                return RestResponse.from((Response) emittedObject, alloc);
             }
             else if (! responseContentType.isPresent() &&
                     ! expectedContentTypes.isEmpty() &&
                     ! providedContentTypes.isEmpty())
             {
                 // Couldn't agree on a content type
-                return Response.status(Status.NOT_ACCEPTABLE).build();
+                return notAcceptable(emittedObject);
             }
             
-            Optional<String> stringRep = responseIsJson(responseContentType) ? Optional.ofNullable(jsonMapper.writeValueAsString(emittedObject))
-                    : (responseIsXml(responseContentType) ? Optional.ofNullable(xmlMapper.writeValueAsString(emittedObject)) :
+            final Rendering rendering = renderings.computeIfAbsent(emittedObject.getClass(), Rendering::new);
+            if (rendering.isStreamed())
+            {
+                final RestResponse rsp = streamed(responseContentType.orElse(ContentType.APPLICATION_OCTET_STREAM_TYPE),
+                        expectedContentTypes, RestResponse.output(emittedObject).get());
+                if (! rsp.isStreamed()) dispose(emittedObject);
+                return rsp;
+            }
+            else if (rendering.isFile())
+            {
+                return file(emittedObject, responseContentType, expectedContentTypes);
+            }
+            else if ((rendering.isSequence() || rendering.isCollection()) &&
+                    ! wantsXml && ! responseIsXml(responseContentType) &&
+                    (wantsJson || responseIsJson(responseContentType) || ! rendering.isDeclaresToString()))
+            {
+                final ContentType contentType = responseContentType.orElse(
+                        expects(expectedContentTypes, ContentType.APPLICATION_NDJSON_TYPE) ?
+                                ContentType.APPLICATION_NDJSON_TYPE : ContentType.APPLICATION_JSON_TYPE);
+                final boolean ndjson = contentType.isCompatibleWith(ContentType.APPLICATION_NDJSON_TYPE);
+                if (rendering.isSequence())
+                {
+                    final RestResponse rsp = streamed(contentType, expectedContentTypes, sequence(emittedObject, ndjson));
+                    if (! rsp.isStreamed()) dispose(emittedObject);
+                    return rsp;
+                }
+                else if (ndjson)
+                {
+                    return ndjson(contentType, expectedContentTypes, emittedObject, alloc, sizeHint);
+                }
+                // Otherwise a Collection is written as a JSON array below.
+            }
+            Optional<Object> entity = rendering.isBinary() ? Optional.of(binary(emittedObject, alloc, sizeHint))
+                    : responseIsJson(responseContentType) ? Optional.of(serialize(rendering.getJsonWriter(), emittedObject, alloc, sizeHint))
+                    : (responseIsXml(responseContentType) ? Optional.of(serialize(rendering.getXmlWriter(), emittedObject, alloc, sizeHint)) :
                         Optional.empty());
             
-            if (! stringRep.isPresent())
+            if (! entity.isPresent())
             {
-                if (emittedObject instanceof String && ! wantsJson && ! wantsXml)
+                if (rendering.isString() && ! wantsJson && ! wantsXml)
                 {
                     if (! responseContentType.isPresent()) responseContentType = Optional.of(ContentType.TEXT_PLAIN_TYPE);
-                    stringRep = Optional.of((String) emittedObject);
+                    entity = Optional.of((String) emittedObject);
                 }
-                else if (hasDeclaredToString(emittedObject.getClass()) && ! wantsJson && ! wantsXml)
+                else if (rendering.isDeclaresToString() && ! wantsJson && ! wantsXml)
                 {
                     if (! responseContentType.isPresent()) responseContentType = Optional.of(ContentType.TEXT_PLAIN_TYPE);
-                    stringRep = Optional.of(emittedObject.toString());
+                    entity = Optional.of(emittedObject.toString());
                 }
                 // Otherwise do a JSON conversion if possible
                 else
@@ -81,7 +191,7 @@ public class ResponseFactory
                     {
                         if (wantsXml)
                         {
-                            stringRep = Optional.ofNullable(xmlMapper.writeValueAsString(emittedObject));
+                            entity = Optional.of(serialize(rendering.getXmlWriter(), emittedObject, alloc, sizeHint));
                             if (! responseContentType.isPresent())
                             {
                                 responseContentType = Optional.of(ContentType.APPLICATION_XML_TYPE);
@@ -89,31 +199,36 @@ public class ResponseFactory
                         }
                         else
                         {
-                            stringRep = Optional.ofNullable(jsonMapper.writeValueAsString(emittedObject));
+                            entity = Optional.of(serialize(rendering.getJsonWriter(), emittedObject, alloc, sizeHint));
                             if (! responseContentType.isPresent())
                             {
                                 responseContentType = Optional.of(ContentType.APPLICATION_JSON_TYPE);
                             }
                         }
                     }
-                    catch (JsonProcessingException e) { }
+                    catch (IOException e) { }
                 }
                 
                 // As a last resort use whatever toString gives us
-                if (! stringRep.isPresent())
+                if (! entity.isPresent())
                 {
                     if (! responseContentType.isPresent())
                     {
                         responseContentType = Optional.of(ContentType.TEXT_PLAIN_TYPE);
                     }
-                    stringRep = Optional.of(emittedObject.toString());
+                    entity = Optional.of(emittedObject.toString());
                 }
             }
             
+            if (rendering.isBinary() && ! responseContentType.isPresent())
+            {
+                responseContentType = Optional.of(ContentType.APPLICATION_OCTET_STREAM_TYPE);
+            }
+            
             if (! responseContentType.isPresent())
             {
                 // We should have a response content type by now, regardless of @Provides declarations.
-                return Response.status(Status.NOT_ACCEPTABLE).build();
+                return notAcceptable(entity.orElse(emittedObject));
             }
             else if (! expectedContentTypes.isEmpty())
             {
@@ -123,30 +238,229 @@ public class ResponseFactory
                 if (! (responseContentType =
                         contentTypeResolver.resolve(Lists.newArrayList(responseContentType.get()), expectedContentTypes)).isPresent())
                 {
-                    return Response.status(Status.NOT_ACCEPTABLE).build();
+                    return notAcceptable(entity.orElse(emittedObject));
                 }
             }
             
-            if (stringRep.isPresent())
+            if (entity.isPresent())
             {
-                return Response
-                        .status(Status.OK)
-                        .entity(stringRep.get())
-                        .type(responseContentType.isPresent() ? responseContentType.get().toString() : ContentType.TEXT_PLAIN)
-                        .build();
+                return entity.get() instanceof ByteBuf ?
+                        RestResponse.of(HttpResponseStatus.OK, responseContentType.get(), (ByteBuf) entity.get()) :
+                        RestResponse.of(HttpResponseStatus.OK, responseContentType.get(), (String) entity.get(), alloc);
             }
             else
             {
-                return Response
-                        .status(Status.NO_CONTENT)
-                        .entity(null)
-                        .build();
+                return RestResponse.status(HttpResponseStatus.NO_CONTENT);
+            }
+        }
+        catch (IOException e)
+        {
+            return RestResponse.status(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    /**
+     * The entity isn't sent, so it is released or closed here.
+     */
+    private static RestResponse notAcceptable(final Object entity)
+    {
+        dispose(entity);
+        return RestResponse.status(HttpResponseStatus.NOT_ACCEPTABLE);
+    }
+    
+    private RestResponse streamed(final ContentType contentType,
+            final List<ContentType> expectedContentTypes,
+            final StreamingOutput output)
+    {
+        if (! expectedContentTypes.isEmpty() &&
+                ! contentTypeResolver.resolve(Lists.newArrayList(contentType), expectedContentTypes).isPresent())
+        {
+            return RestResponse.status(HttpResponseStatus.NOT_ACCEPTABLE);
+        }
+        return RestResponse.streamed(HttpResponseStatus.OK, contentType, output);
+    }
+    
+    private RestResponse ndjson(final ContentType contentType,
+            final List<ContentType> expectedContentTypes,
+            final Object collection,
+            final ByteBufAllocator alloc,
+            final ResponseSizeHint sizeHint) throws IOException
+    {
+        if (! expectedContentTypes.isEmpty() &&
+                ! contentTypeResolver.resolve(Lists.newArrayList(contentType), expectedContentTypes).isPresent())
+        {
+            return notAcceptable(collection);
+        }
+        final ByteBuf buf = alloc.buffer(sizeHint.next());
+        try (final OutputStream out = new ByteBufOutputStream(buf))
+        {
+            sequence(collection, true).write(out);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            buf.release();
+            throw e;
+        }
+        sizeHint.record(buf.readableBytes());
+        return RestResponse.of(HttpResponseStatus.OK, contentType, buf);
+    }
+    
+    private RestResponse file(final Object emittedObject,
+            final Optional<ContentType> responseContentType,
+            final List<ContentType> expectedContentTypes) throws IOException
+    {
+        final Optional<Path> path = emittedObject instanceof File ? Optional.of(((File) emittedObject).toPath()) :
+            (emittedObject instanceof Path ? Optional.of((Path) emittedObject) : Optional.empty());
+        final FileContent file;
+        try
+        {
+            file = path.isPresent() ? FileContent.of(path.get()) : FileContent.of((FileChannel) emittedObject);
+        }
+        catch (NoSuchFileException e)
+        {
+            return RestResponse.status(HttpResponseStatus.NOT_FOUND);
+        }
+        
+        final ContentType contentType = responseContentType.isPresent() ? responseContentType.get() :
+            (path.isPresent() ? guessContentType(path.get()) : ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        if (! expectedContentTypes.isEmpty() &&
+                ! contentTypeResolver.resolve(Lists.newArrayList(contentType), expectedContentTypes).isPresent())
+        {
+            file.close();
+            return RestResponse.status(HttpResponseStatus.NOT_ACCEPTABLE);
+        }
+        return RestResponse.file(HttpResponseStatus.OK, contentType, file);
+    }
+    
+    private static ContentType guessContentType(final Path path) throws IOException
+    {
+        String mediaType = Files.probeContentType(path);
+        if (null == mediaType) mediaType = URLConnection.guessContentTypeFromName(path.getFileName().toString());
+        if (null == mediaType) return ContentType.APPLICATION_OCTET_STREAM_TYPE;
+        try
+        {
+            return ContentType.valueOf(mediaType);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return new ContentType(mediaType);
+        }
+    }
+    
+    /**
+     * Writes the elements of a Stream, Iterator or Iterable one at a time, as
+     * they are produced.  Output is only flushed when a chunk fills, so small
+     * elements don't each become a chunk.
+     */
+    private StreamingOutput sequence(final Object emittedObject, final boolean ndjson)
+    {
+        return out -> {
+            try
+            {
+                // Not closed on failure, which would end the array and make the body look whole.
+                final JsonGenerator gen = codec.getJsonMapper().getFactory().createGenerator(out);
+                gen.setRootValueSeparator(null);
+                if (! ndjson) gen.writeStartArray();
+                final Iterator<?> elements = iterator(emittedObject);
+                while (elements.hasNext())
+                {
+                    elementWriter.writeValue(gen, elements.next());
+                    if (ndjson) gen.writeRaw('\n');
+                }
+                if (! ndjson) gen.writeEndArray();
+                gen.close();
+            }
+            finally
+            {
+                dispose(emittedObject);
+            }
+        };
+    }
+    
+    private static Iterator<?> iterator(final Object sequence)
+    {
+        if (sequence instanceof Stream) return ((Stream<?>) sequence).iterator();
+        if (sequence instanceof Iterator) return (Iterator<?>) sequence;
+        return ((Iterable<?>) sequence).iterator();
+    }
+    
+    /**
+     * Releases a reference-counted entity, or closes one that holds a stream,
+     * file or other resource.  Sequences are closed once they have been written.
+     */
+    private static void dispose(final Object entity)
+    {
+        if (entity instanceof AutoCloseable)
+        {
+            try
+            {
+                ((AutoCloseable) entity).close();
+            }
+            catch (Exception e) { }
+        }
+        else
+        {
+            ReferenceCountUtil.release(entity);
+        }
+    }
+    
+    /**
+     * Binary entities are sent without copying, except for streams, which are
+     * read to the end and closed.
+     */
+    private static ByteBuf binary(final Object emittedObject,
+            final ByteBufAllocator alloc,
+            final ResponseSizeHint sizeHint) throws IOException
+    {
+        if (emittedObject instanceof ByteBuf)
+        {
+            return (ByteBuf) emittedObject;
+        }
+        else if (emittedObject instanceof byte[])
+        {
+            return Unpooled.wrappedBuffer((byte[]) emittedObject);
+        }
+        else if (emittedObject instanceof ByteBuffer)
+        {
+            return Unpooled.wrappedBuffer((ByteBuffer) emittedObject);
+        }
+        
+        final ByteBuf buf = alloc.buffer(sizeHint.next());
+        try (final InputStream in = (InputStream) emittedObject)
+        {
+            int read;
+            do
+            {
+                read = buf.writeBytes(in, STREAM_CHUNK_SIZE);
             }
+            while (-1 != read);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            buf.release();
+            throw e;
+        }
+        sizeHint.record(buf.readableBytes());
+        return buf;
+    }
+    
+    private static ByteBuf serialize(final ObjectWriter writer,
+            final Object emittedObject,
+            final ByteBufAllocator alloc,
+            final ResponseSizeHint sizeHint) throws IOException
+    {
+        final ByteBuf buf = alloc.buffer(sizeHint.next());
+        try (final OutputStream out = new ByteBufOutputStream(buf))
+        {
+            writer.writeValue(out, emittedObject);
         }
-        catch (JsonProcessingException e)
+        catch (IOException | RuntimeException e)
         {
-            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+            buf.release();
+            throw e;
         }
+        sizeHint.record(buf.readableBytes());
+        return buf;
     }
     
     private boolean expects(final List<ContentType> expectedContentTypes, final ContentType contentType)
@@ -156,7 +470,8 @@ public class ResponseFactory
     
     private boolean responseIsJson(final Optional<ContentType> rct)
     {
-        return rct.isPresent() && rct.get().isCompatibleWith(ContentType.APPLICATION_JSON_TYPE);
+        return rct.isPresent() && (rct.get().isCompatibleWith(ContentType.APPLICATION_JSON_TYPE) ||
+                rct.get().isCompatibleWith(ContentType.APPLICATION_NDJSON_TYPE));
     }
     
     private boolean responseIsXml(final Optional<ContentType> rct)
@@ -164,7 +479,45 @@ public class ResponseFactory
         return rct.isPresent() && rct.get().isCompatibleWith(ContentType.APPLICATION_XML_TYPE);
     }
     
-    private boolean hasDeclaredToString(final Class<?> klass)
+    /**
+     * How entities of one class can be rendered.
+     */
+    @Getter
+    private class Rendering
+    {
+        private final boolean string;
+        private final boolean binary;
+        private final boolean streamed;
+        private final boolean sequence;
+        private final boolean collection;
+        private final boolean file;
+        private final boolean declaresToString;
+        private final ObjectWriter jsonWriter;
+        private final ObjectWriter xmlWriter;
+        
+        Rendering(final Class<?> type)
+        {
+            string = String.class == type;
+            binary = ByteBuf.class.isAssignableFrom(type) ||
+                    ByteBuffer.class.isAssignableFrom(type) ||
+                    byte[].class == type ||
+                    InputStream.class.isAssignableFrom(type);
+            streamed = StreamingOutput.class.isAssignableFrom(type) ||
+                    ChannelOutput.class.isAssignableFrom(type);
+            file = File.class.isAssignableFrom(type) ||
+                    Path.class.isAssignableFrom(type) ||
+                    FileChannel.class.isAssignableFrom(type);
+            collection = Collection.class.isAssignableFrom(type);
+            sequence = Stream.class.isAssignableFrom(type) ||
+                    Iterator.class.isAssignableFrom(type) ||
+                    (Iterable.class.isAssignableFrom(type) && ! collection);
+            declaresToString = hasDeclaredToString(type);
+            jsonWriter = codec.jsonWriter(type);
+            xmlWriter = codec.xmlWriter(type);
+        }
+    }
+    
+    private static boolean hasDeclaredToString(final Class<?> klass)
     {
         for (final Method m : klass.getDeclaredMethods())
         {
@@ -0,0 +1,30 @@
+package com.zoomulus.weaver.rest.response;
+
+/**
+ * Running estimate of how large the responses from one route are, so each
+ * response buffer can be allocated close to its final size instead of growing
+ * into it.  Updates are racy by design; a lost sample only skews the estimate.
+ */
+public class ResponseSizeHint
+{
+    static final int MINIMUM = 256;
+    static final int MAXIMUM = 1024 * 1024;
+
+    private volatile int estimate = MINIMUM;
+
+    /**
+     * Initial capacity for the next response buffer.
+     */
+    public int next()
+    {
+        final int e = estimate;
+        return Math.min(MAXIMUM, Math.max(MINIMUM, e + (e >> 2)));
+    }
+
+    public void record(final int size)
+    {
+        // Exponential moving average, weighting the newest sample by 1/4.
+        final int e = estimate;
+        estimate = e + ((Math.min(size, MAXIMUM) - e) >> 2);
+    }
+}
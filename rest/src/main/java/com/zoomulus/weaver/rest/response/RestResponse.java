@@ -0,0 +1,216 @@
+package com.zoomulus.weaver.rest.response;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.CharsetUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.zoomulus.weaver.core.content.ContentType;
+
+/**
+ * What a resource invocation produces and RestHandler writes: a status, an
+ * optional content type and extra headers, and the body bytes.  A JAX-RS
+ * Response is only involved when the resource returned one, and is converted
+ * once.  The content belongs to whoever writes or discards the response.
+ *
+ * A streamed response has no content; instead its output is run while the
+ * response is sent, and the body goes out with chunked transfer encoding.  A
+ * file response has no content either; its file is sent as it is.
+ */
+@Getter
+public class RestResponse
+{
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private final HttpResponseStatus status;
+    private final Optional<String> contentType;
+    private final Map<String, String> headers;
+    private final ByteBuf content;
+    private final Optional<StreamingOutput> output;
+    private final Optional<FileContent> file;
+
+    private RestResponse(final HttpResponseStatus status,
+            final Optional<String> contentType,
+            final Map<String, String> headers,
+            final ByteBuf content)
+    {
+        this(status, contentType, headers, content, Optional.empty(), Optional.empty());
+    }
+
+    private RestResponse(final HttpResponseStatus status,
+            final Optional<String> contentType,
+            final Map<String, String> headers,
+            final ByteBuf content,
+            final Optional<StreamingOutput> output,
+            final Optional<FileContent> file)
+    {
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = headers;
+        this.content = content;
+        this.output = output;
+        this.file = file;
+    }
+
+    /**
+     * A response with no body.
+     */
+    public static RestResponse status(@NonNull final HttpResponseStatus status)
+    {
+        return new RestResponse(status, Optional.empty(), ImmutableMap.of(), Unpooled.EMPTY_BUFFER);
+    }
+
+    public static RestResponse of(@NonNull final HttpResponseStatus status,
+            @NonNull final ContentType contentType,
+            @NonNull final ByteBuf content)
+    {
+        return new RestResponse(status, Optional.of(headerValue(contentType)), ImmutableMap.of(), content);
+    }
+
+    /**
+     * Encodes text as UTF-8 into a buffer from alloc.
+     */
+    public static RestResponse of(@NonNull final HttpResponseStatus status,
+            @NonNull final ContentType contentType,
+            @NonNull final String content,
+            @NonNull final ByteBufAllocator alloc)
+    {
+        return of(status, contentType, encode(content, alloc));
+    }
+
+    public static RestResponse streamed(@NonNull final HttpResponseStatus status,
+            @NonNull final ContentType contentType,
+            @NonNull final StreamingOutput output)
+    {
+        return new RestResponse(status, Optional.of(headerValue(contentType)), ImmutableMap.of(),
+                Unpooled.EMPTY_BUFFER, Optional.of(output), Optional.empty());
+    }
+
+    /**
+     * Sends file as the body, with its modification time as Last-Modified.
+     */
+    public static RestResponse file(@NonNull final HttpResponseStatus status,
+            @NonNull final ContentType contentType,
+            @NonNull final FileContent file)
+    {
+        final Map<String, String> headers = file.getLastModified().isPresent() ?
+                ImmutableMap.of(HttpHeaders.Names.LAST_MODIFIED, HTTP_DATE.format(Instant.ofEpochMilli(file.getLastModified().get()))) :
+                ImmutableMap.of();
+        return new RestResponse(status, Optional.of(headerValue(contentType)), headers,
+                Unpooled.EMPTY_BUFFER, Optional.empty(), Optional.of(file));
+    }
+
+    /**
+     * Converts a Response returned by a resource.  A ByteBuf, ByteBuffer or byte[]
+     * entity is sent as it is, a StreamingOutput or ChannelOutput entity is
+     * streamed, and any other entity is sent as its toString(), encoded as UTF-8.
+     */
+    public static RestResponse from(@NonNull final Response rsp, @NonNull final ByteBufAllocator alloc)
+    {
+        final Object entity = rsp.getEntity();
+        final ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
+        for (final String name : rsp.getHeaders().keySet())
+        {
+            if (! HttpHeaders.Names.CONTENT_TYPE.equalsIgnoreCase(name) &&
+                    ! HttpHeaders.Names.CONTENT_LENGTH.equalsIgnoreCase(name))
+            {
+                headers.put(name, rsp.getHeaderString(name));
+            }
+        }
+
+        if (null == entity)
+        {
+            return new RestResponse(HttpResponseStatus.valueOf(rsp.getStatus()), Optional.empty(),
+                    headers.build(), Unpooled.EMPTY_BUFFER);
+        }
+        final Optional<StreamingOutput> output = output(entity);
+        return new RestResponse(HttpResponseStatus.valueOf(rsp.getStatus()),
+                Optional.of(null != rsp.getMediaType() ? rsp.getMediaType().toString() :
+                    headerValue(output.isPresent() ? ContentType.APPLICATION_OCTET_STREAM_TYPE : ContentType.TEXT_PLAIN_TYPE)),
+                headers.build(),
+                output.isPresent() ? Unpooled.EMPTY_BUFFER : content(entity, alloc),
+                output, Optional.empty());
+    }
+
+    public boolean isStreamed()
+    {
+        return output.isPresent();
+    }
+
+    /**
+     * Adapts a resource's result to the StreamingOutput a streamed response runs,
+     * if it is one.
+     */
+    public static Optional<StreamingOutput> output(final Object entity)
+    {
+        if (entity instanceof StreamingOutput)
+        {
+            return Optional.of((StreamingOutput) entity);
+        }
+        else if (entity instanceof ChannelOutput)
+        {
+            final ChannelOutput channelOutput = (ChannelOutput) entity;
+            return Optional.of(out -> channelOutput.write(Channels.newChannel(out)));
+        }
+        return Optional.empty();
+    }
+
+    public boolean release()
+    {
+        file.ifPresent(FileContent::close);
+        return content.refCnt() > 0 && content.release();
+    }
+
+    private static ByteBuf content(final Object entity, final ByteBufAllocator alloc)
+    {
+        if (entity instanceof ByteBuf)
+        {
+            return (ByteBuf) entity;
+        }
+        else if (entity instanceof byte[])
+        {
+            return Unpooled.wrappedBuffer((byte[]) entity);
+        }
+        else if (entity instanceof ByteBuffer)
+        {
+            return Unpooled.wrappedBuffer((ByteBuffer) entity);
+        }
+        return encode(entity.toString(), alloc);
+    }
+
+    private static ByteBuf encode(final String content, final ByteBufAllocator alloc)
+    {
+        return ByteBufUtil.encodeString(alloc, CharBuffer.wrap(content), CharsetUtil.UTF_8);
+    }
+
+    /**
+     * Only textual types carry a charset.
+     */
+    private static String headerValue(final ContentType contentType)
+    {
+        final String mediaType = contentType.getMediaType();
+        return mediaType.startsWith("text/") || mediaType.contains("json") || mediaType.contains("xml") ?
+                mediaType + "; charset=" + contentType.getEncoding() : mediaType;
+    }
+}
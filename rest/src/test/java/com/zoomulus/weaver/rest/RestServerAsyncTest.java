@@ -0,0 +1,78 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.http.client.ClientProtocolException;
+import org.junit.Test;
+
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.testutils.GetRequestResult;
+import com.zoomulus.weaver.rest.testutils.RequestResult;
+
+public class RestServerAsyncTest extends RestServerTestBase
+{
+    @Test
+    public void testCompletionStageReturn() throws ClientProtocolException, IOException
+    {
+        verifyOkResult(new GetRequestResult("get/async/stage"), "async stage");
+    }
+    
+    @Test
+    public void testCompletionStageValueIsNegotiated() throws ClientProtocolException, IOException
+    {
+        final RequestResult rr = new GetRequestResult("get/async/stage/json", getAcceptHeader(ContentType.APPLICATION_JSON));
+        assertEquals(Status.OK.getStatusCode(), rr.status());
+        verifyContentType(rr, ContentType.APPLICATION_JSON_TYPE);
+        assertTrue(rr.content().contains("\"name\":\"Stage Person\""));
+    }
+    
+    @Test
+    public void testCompletionStageNotAcceptable() throws ClientProtocolException, IOException
+    {
+        verifyNotAcceptableResult(new GetRequestResult("get/async/stage/json", getAcceptHeader(ContentType.APPLICATION_XML)));
+    }
+    
+    @Test
+    public void testCompletionCallbackRunsAfterResponse()
+            throws ClientProtocolException, IOException, InterruptedException, ExecutionException, TimeoutException
+    {
+        verifyOkResult(new GetRequestResult("get/async/suspended/callback"), "callback");
+        assertEquals("sent", RestServerTestResource.suspendedCallback.get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testFailedCompletionStage() throws ClientProtocolException, IOException
+    {
+        verifyInternalServerErrorResult(new GetRequestResult("get/async/stage/failed"));
+    }
+    
+    @Test
+    public void testSuspendedAsyncResponse() throws ClientProtocolException, IOException
+    {
+        verifyOkResult(new GetRequestResult("get/async/suspended?name=weaver"), "suspended weaver");
+    }
+    
+    @Test
+    public void testSuspendedAsyncResponseTimeout() throws ClientProtocolException, IOException
+    {
+        assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), new GetRequestResult("get/async/suspended/timeout").status());
+    }
+    
+    @Test
+    public void testConnectionReusableAfterAsyncRequest() throws ClientProtocolException, IOException
+    {
+        for (int i=0; i<5; i++)
+        {
+            verifyOkResult(new GetRequestResult("get/async/stage"), "async stage");
+            verifyOkResult(new GetRequestResult("get"), "get");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.zoomulus.weaver.rest;
+
+import java.io.IOException;
+
+import org.apache.http.client.ClientProtocolException;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.testutils.GetRequestResult;
+import com.zoomulus.weaver.rest.testutils.PostRequestResult;
+import com.zoomulus.weaver.rest.testutils.RequestResult;
+
+public class RestServerBinaryTest extends RestServerTestBase
+{
+    @Test
+    public void testPostByteBufIsEchoed() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/binary/bytebuf", "raw bytes", ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, "raw bytes");
+        verifyContentType(result, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+    
+    @Test
+    public void testPostLargeByteBufIsEchoed() throws ClientProtocolException, IOException
+    {
+        final String payload = Strings.repeat("0123456789abcdef", 16 * 1024);
+        final RequestResult result = new PostRequestResult("/post/binary/bytebuf", payload, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, payload);
+    }
+    
+    @Test
+    public void testPostByteBuffer() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/binary/bytebuffer", "twelve bytes", ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, "12");
+    }
+    
+    @Test
+    public void testPostByteArrayIsNotDecoded() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/binary/bytearray", "100% a+b", ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, "100% a+b");
+        verifyContentType(result, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+    
+    @Test
+    public void testPostInputStream() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/binary/stream", "streamed", ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, "streamed");
+    }
+    
+    @Test
+    public void testGetByteBuffer() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/binary/bytebuffer");
+        verifyOkResult(result, "buffer");
+        verifyContentType(result, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+    
+    @Test
+    public void testGetInputStream() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/binary/stream");
+        verifyOkResult(result, "stream");
+        verifyContentType(result, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+    
+    @Test
+    public void testGetBytesUseProducedContentType() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/binary/produces/text");
+        verifyOkResult(result, "text");
+        verifyContentType(result, ContentType.TEXT_PLAIN_TYPE);
+    }
+    
+    @Test
+    public void testGetBinaryNotAcceptable() throws ClientProtocolException, IOException
+    {
+        verifyNotAcceptableResult(new GetRequestResult("/get/binary/stream", getAcceptHeader(ContentType.APPLICATION_JSON)));
+    }
+}
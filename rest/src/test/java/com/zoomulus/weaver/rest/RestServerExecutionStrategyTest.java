@@ -0,0 +1,43 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.http.client.ClientProtocolException;
+import org.junit.Test;
+
+import com.zoomulus.weaver.rest.testutils.GetRequestResult;
+
+public class RestServerExecutionStrategyTest extends RestServerTestBase
+{
+    @Test
+    public void testDefaultRunsOnEventLoop() throws ClientProtocolException, IOException
+    {
+        final GetRequestResult rr = new GetRequestResult("get/execution/default");
+        assertEquals(Status.OK.getStatusCode(), rr.status());
+        assertFalse(rr.content().startsWith("weaver-worker-"));
+    }
+    
+    @Test
+    public void testBlockingRunsOnWorker() throws ClientProtocolException, IOException
+    {
+        final GetRequestResult rr = new GetRequestResult("get/execution/blocking");
+        assertEquals(Status.OK.getStatusCode(), rr.status());
+        assertTrue(rr.content().startsWith("weaver-worker-"));
+    }
+    
+    @Test
+    public void testConnectionReusableAfterBlockingRequest() throws ClientProtocolException, IOException
+    {
+        for (int i=0; i<5; i++)
+        {
+            assertTrue(new GetRequestResult("get/execution/blocking").content().startsWith("weaver-worker-"));
+            assertFalse(new GetRequestResult("get/execution/default").content().startsWith("weaver-worker-"));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.testutils.GetRequestResult;
+import com.zoomulus.weaver.rest.testutils.RequestResult;
+
+public class RestServerFileResponseTest extends RestServerTestBase
+{
+    private static HttpResponse get(final String uri) throws ClientProtocolException, IOException
+    {
+        return Request.Get("http://localhost:22002" + uri).execute().returnResponse();
+    }
+    
+    @Test
+    public void testFileIsSentWithLengthAndLastModified() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/file/file");
+        assertEquals(200, rsp.getStatusLine().getStatusCode());
+        assertEquals("11", rsp.getFirstHeader(HttpHeaders.Names.CONTENT_LENGTH).getValue());
+        assertNotNull(rsp.getFirstHeader(HttpHeaders.Names.LAST_MODIFIED));
+        assertNull(rsp.getFirstHeader(HttpHeaders.Names.TRANSFER_ENCODING));
+        assertEquals("<p>file</p>", EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testFileContentTypeIsGuessedFromName() throws ClientProtocolException, IOException
+    {
+        verifyContentType(new GetRequestResult("/get/file/file"), ContentType.TEXT_HTML_TYPE);
+    }
+    
+    @Test
+    public void testLargePath() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/file/path/3000000");
+        assertEquals(200, rsp.getStatusLine().getStatusCode());
+        final byte[] content = EntityUtils.toByteArray(rsp.getEntity());
+        assertEquals(3000000, content.length);
+        assertEquals('a' + 2999999 % 26, content[2999999]);
+    }
+    
+    @Test
+    public void testFileChannelFromItsPosition() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/file/channel");
+        verifyOkResult(result, "23456789");
+        verifyContentType(result, ContentType.TEXT_PLAIN_TYPE);
+    }
+    
+    @Test
+    public void testMissingFileIsNotFound() throws ClientProtocolException, IOException
+    {
+        verifyNotFoundResult(new GetRequestResult("/get/file/missing"));
+    }
+    
+    @Test
+    public void testFileNotAcceptable() throws ClientProtocolException, IOException
+    {
+        verifyNotAcceptableResult(new GetRequestResult("/get/file/file", getAcceptHeader(ContentType.APPLICATION_JSON)));
+    }
+    
+    @Test
+    public void testFilesOnOneConnection() throws ClientProtocolException, IOException
+    {
+        for (int i = 0; i < 4; i++)
+        {
+            verifyOkResult(new GetRequestResult("/get/file/channel"), "23456789");
+            verifyOkResult(new GetRequestResult("/get/binary/bytebuffer"), "buffer");
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+public class RestServerRangeTest extends RestServerTestBase
+{
+    private static HttpResponse get(final String uri, final String range) throws ClientProtocolException, IOException
+    {
+        return Request.Get("http://localhost:22002" + uri)
+                .addHeader(HttpHeaders.Names.RANGE, range)
+                .execute().returnResponse();
+    }
+    
+    private static String header(final HttpResponse rsp, final String name)
+    {
+        return null != rsp.getFirstHeader(name) ? rsp.getFirstHeader(name).getValue() : null;
+    }
+    
+    @Test
+    public void testFullResponseAcceptsRanges() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = Request.Get("http://localhost:22002/get/binary/bytebuffer").execute().returnResponse();
+        assertEquals(200, rsp.getStatusLine().getStatusCode());
+        assertEquals(HttpHeaders.Values.BYTES, header(rsp, HttpHeaders.Names.ACCEPT_RANGES));
+    }
+    
+    @Test
+    public void testSingleRangeOfContent() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/binary/bytebuffer", "bytes=1-3");
+        assertEquals(206, rsp.getStatusLine().getStatusCode());
+        assertEquals("bytes 1-3/6", header(rsp, HttpHeaders.Names.CONTENT_RANGE));
+        assertEquals("3", header(rsp, HttpHeaders.Names.CONTENT_LENGTH));
+        assertEquals("uff", EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testSuffixRangeOfFile() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/file/path/1000", "bytes=-4");
+        assertEquals(206, rsp.getStatusLine().getStatusCode());
+        assertEquals("bytes 996-999/1000", header(rsp, HttpHeaders.Names.CONTENT_RANGE));
+        assertEquals("4", header(rsp, HttpHeaders.Names.CONTENT_LENGTH));
+        // 996 % 26 == 8
+        assertEquals("ijkl", EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testLargeRangeOfFile() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/file/path/3000000", "bytes=1000000-");
+        assertEquals(206, rsp.getStatusLine().getStatusCode());
+        final byte[] content = EntityUtils.toByteArray(rsp.getEntity());
+        assertEquals(2000000, content.length);
+        assertEquals('a' + 1000000 % 26, content[0]);
+        assertEquals('a' + 2999999 % 26, content[1999999]);
+    }
+    
+    @Test
+    public void testMultipleRangesOfContent() throws ClientProtocolException, IOException
+    {
+        verifyMultipart(get("/get/binary/bytebuffer", "bytes=0-0,4-5"), "b", "bytes 0-0/6", "er", "bytes 4-5/6");
+    }
+    
+    @Test
+    public void testMultipleRangesOfFile() throws ClientProtocolException, IOException
+    {
+        verifyMultipart(get("/get/file/path/100", "bytes=-2,0-2"), "abc", "bytes 0-2/100", "uv", "bytes 98-99/100");
+    }
+    
+    private static void verifyMultipart(final HttpResponse rsp,
+            final String first, final String firstRange,
+            final String second, final String secondRange) throws IOException
+    {
+        assertEquals(206, rsp.getStatusLine().getStatusCode());
+        final String contentType = header(rsp, HttpHeaders.Names.CONTENT_TYPE);
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        final byte[] body = EntityUtils.toByteArray(rsp.getEntity());
+        assertEquals(header(rsp, HttpHeaders.Names.CONTENT_LENGTH), String.valueOf(body.length));
+        
+        final String[] parts = new String(body, CharsetUtil.US_ASCII).split("\r\n--" + boundary);
+        assertEquals(4, parts.length);
+        assertEquals("--\r\n", parts[3]);
+        verifyPart(parts[1], first, firstRange);
+        verifyPart(parts[2], second, secondRange);
+    }
+    
+    private static void verifyPart(final String part, final String content, final String range)
+    {
+        assertTrue(part.contains("\r\nContent-Range: " + range + "\r\n"));
+        assertTrue(part.endsWith("\r\n\r\n" + content));
+    }
+    
+    @Test
+    public void testUnsatisfiableRange() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/file/path/100", "bytes=100-");
+        assertEquals(416, rsp.getStatusLine().getStatusCode());
+        assertEquals("bytes */100", header(rsp, HttpHeaders.Names.CONTENT_RANGE));
+    }
+    
+    @Test
+    public void testInvalidRangeIsServedWhole() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/binary/bytebuffer", "bytes=3-1");
+        assertEquals(200, rsp.getStatusLine().getStatusCode());
+        assertEquals("buffer", EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testIfRange() throws ClientProtocolException, IOException
+    {
+        final String lastModified = header(Request.Get("http://localhost:22002/get/file/file").execute().returnResponse(),
+                HttpHeaders.Names.LAST_MODIFIED);
+        
+        final HttpResponse matching = Request.Get("http://localhost:22002/get/file/file")
+                .addHeader(HttpHeaders.Names.RANGE, "bytes=3-6")
+                .addHeader(HttpHeaders.Names.IF_RANGE, lastModified)
+                .execute().returnResponse();
+        assertEquals(206, matching.getStatusLine().getStatusCode());
+        assertEquals("file", EntityUtils.toString(matching.getEntity()));
+        
+        final HttpResponse changed = Request.Get("http://localhost:22002/get/file/file")
+                .addHeader(HttpHeaders.Names.RANGE, "bytes=3-6")
+                .addHeader(HttpHeaders.Names.IF_RANGE, "Thu, 01 Jan 1970 00:00:00 GMT")
+                .execute().returnResponse();
+        assertEquals(200, changed.getStatusLine().getStatusCode());
+        assertNull(changed.getFirstHeader(HttpHeaders.Names.CONTENT_RANGE));
+        assertEquals("<p>file</p>", EntityUtils.toString(changed.getEntity()));
+    }
+    
+    @Test
+    public void testRangesOnOneConnection() throws ClientProtocolException, IOException
+    {
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals("ijkl", EntityUtils.toString(get("/get/file/path/1000", "bytes=-4").getEntity()));
+            assertEquals("uff", EntityUtils.toString(get("/get/binary/bytebuffer", "bytes=1-3").getEntity()));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import org.apache.http.client.ClientProtocolException;
 import org.junit.Test;
 
+import com.google.common.base.Strings;
 import com.zoomulus.weaver.core.content.ContentType;
 import com.zoomulus.weaver.rest.testutils.PostRequestResult;
 import com.zoomulus.weaver.rest.testutils.PutRequestResult;
@@ -12,6 +13,43 @@ import com.zoomulus.weaver.rest.testutils.RequestResult;
 
 public class RestServerRequestPayloadHandlerTest extends RestServerTestBase
 {
+    @Test
+    public void testPostLargePayloadArrivesWhole() throws ClientProtocolException, IOException
+    {
+        // Large enough that the request decoder hands it over in many chunks.
+        final String payload = Strings.repeat("0123456789abcdef", 64 * 1024);
+        final RequestResult result = new PostRequestResult("/post/string/length", payload, ContentType.TEXT_PLAIN_TYPE);
+        verifyOkResult(result, String.valueOf(payload.length()));
+    }
+    
+    @Test
+    public void testPostLargeJsonIsParsedIncrementally() throws ClientProtocolException, IOException
+    {
+        final String s = Strings.repeat("0123456789abcdef", 64 * 1024);
+        final RequestResult result = new PostRequestResult("/post/string/json/incremental", "{\"s\":\"" + s + "\"}", ContentType.APPLICATION_JSON_TYPE);
+        verifyOkResult(result, String.valueOf(s.length()));
+    }
+    
+    @Test
+    public void testPostMalformedJsonIsParsedIncrementally() throws ClientProtocolException, IOException
+    {
+        verifyUnsupportedMediaTypeResult(new PostRequestResult("/post/string/json/incremental", "{\"s\":", ContentType.APPLICATION_JSON_TYPE));
+    }
+    
+    @Test
+    public void testPostJsonPayloadIsNotPercentDecoded() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/string/json", "{\"s\":\"100% a+b\"}", ContentType.APPLICATION_JSON_TYPE);
+        verifyOkResult(result, "100% a+b");
+    }
+    
+    @Test
+    public void testPostTextPayloadIsNotPercentDecoded() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/string", "a+b%20c", ContentType.TEXT_PLAIN_TYPE);
+        verifyOkResult(result, "a+b%20c");
+    }
+    
     @Test
     public void testPostTextPlainToStringPayloadProvidesRawData() throws ClientProtocolException, IOException
     {
@@ -0,0 +1,105 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.testutils.GetRequestResult;
+import com.zoomulus.weaver.rest.testutils.RequestResult;
+
+public class RestServerSequenceResponseTest extends RestServerTestBase
+{
+    @Test
+    public void testStreamIsJsonArray() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/sequence/stream/2",
+                getAcceptHeader(ContentType.APPLICATION_JSON));
+        verifyOkResult(result, "[{\"name\":\"p0\",\"age\":30,\"city\":\"Nowhere\"},{\"name\":\"p1\",\"age\":30,\"city\":\"Nowhere\"}]");
+        verifyContentType(result, ContentType.APPLICATION_JSON_TYPE);
+    }
+    
+    @Test
+    public void testLargeStream() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/sequence/stream/20000",
+                getAcceptHeader(ContentType.APPLICATION_JSON));
+        assertEquals(200, result.status());
+        assertTrue(result.content().startsWith("[{\"name\":\"p0\""));
+        assertTrue(result.content().endsWith("{\"name\":\"p19999\",\"age\":30,\"city\":\"Nowhere\"}]"));
+    }
+    
+    @Test
+    public void testStreamAsNdjson() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/sequence/stream/2",
+                getAcceptHeader(ContentType.APPLICATION_NDJSON));
+        verifyOkResult(result, "{\"name\":\"p0\",\"age\":30,\"city\":\"Nowhere\"}\n{\"name\":\"p1\",\"age\":30,\"city\":\"Nowhere\"}\n");
+        verifyContentType(result, ContentType.APPLICATION_NDJSON_TYPE);
+    }
+    
+    @Test
+    public void testIterator() throws ClientProtocolException, IOException
+    {
+        verifyOkResult(new GetRequestResult("/get/sequence/iterator"), "[1,2,3]");
+    }
+    
+    @Test
+    public void testIterableIsStreamed() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/sequence/iterable", ContentType.APPLICATION_JSON);
+        assertEquals(HttpHeaders.Values.CHUNKED, rsp.getFirstHeader(HttpHeaders.Names.TRANSFER_ENCODING).getValue());
+        assertEquals("[1,2,3]", EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testCollectionIsSentWhole() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/sequence/list", ContentType.APPLICATION_JSON);
+        assertNull(rsp.getFirstHeader(HttpHeaders.Names.TRANSFER_ENCODING));
+        final String body = EntityUtils.toString(rsp.getEntity());
+        assertEquals("[{\"name\":\"a\",\"age\":30,\"city\":\"Nowhere\"},{\"name\":\"b\",\"age\":30,\"city\":\"Nowhere\"}]", body);
+        assertEquals(String.valueOf(body.length()), rsp.getFirstHeader(HttpHeaders.Names.CONTENT_LENGTH).getValue());
+    }
+    
+    @Test
+    public void testCollectionAsNdjsonIsSentWhole() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = get("/get/sequence/list", ContentType.APPLICATION_NDJSON);
+        assertNull(rsp.getFirstHeader(HttpHeaders.Names.TRANSFER_ENCODING));
+        assertEquals("{\"name\":\"a\",\"age\":30,\"city\":\"Nowhere\"}\n{\"name\":\"b\",\"age\":30,\"city\":\"Nowhere\"}\n",
+                EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    private static HttpResponse get(final String uri, final String accept) throws ClientProtocolException, IOException
+    {
+        return Request.Get("http://localhost:22002" + uri)
+                .addHeader(HttpHeaders.Names.ACCEPT, accept)
+                .execute().returnResponse();
+    }
+    
+    @Test
+    public void testProducesNdjson() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/sequence/ndjson");
+        verifyOkResult(result, "{\"name\":\"a\",\"age\":30,\"city\":\"Nowhere\"}\n{\"name\":\"b\",\"age\":30,\"city\":\"Nowhere\"}\n");
+        verifyContentType(result, ContentType.APPLICATION_NDJSON_TYPE);
+    }
+    
+    @Test
+    public void testSequenceAsXmlNotStreamed() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/sequence/ndjson",
+                getAcceptHeader(ContentType.APPLICATION_XML));
+        verifyNotAcceptableResult(result);
+    }
+}
@@ -0,0 +1,94 @@
+package com.zoomulus.weaver.rest;
+
+import java.io.IOException;
+
+import org.apache.http.client.ClientProtocolException;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.testutils.PostRequestResult;
+import com.zoomulus.weaver.rest.testutils.RequestResult;
+
+public class RestServerStreamingBodyTest extends RestServerTestBase
+{
+    // Many times the stream's capacity, so reading has to pause and resume.
+    private static final String LARGE = Strings.repeat("0123456789abcdef", 256 * 1024);
+    
+    @Test
+    public void testStreamOfElements() throws ClientProtocolException, IOException
+    {
+        final StringBuilder sb = new StringBuilder("[");
+        long sum = 0;
+        for (int i = 0; i < 200000; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(i);
+            sum += i;
+        }
+        sb.append(']');
+        final RequestResult result = new PostRequestResult("/post/elements/stream", sb.toString(), ContentType.APPLICATION_JSON_TYPE);
+        verifyOkResult(result, String.valueOf(sum));
+    }
+    
+    @Test
+    public void testStreamOfNdjsonElements() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/elements/stream", "1\n2\n3\n", ContentType.APPLICATION_NDJSON_TYPE);
+        verifyOkResult(result, "6");
+    }
+    
+    @Test
+    public void testIteratorOfElements() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/elements/iterator",
+                "[{\"name\":\"a\"},{\"name\":\"b\"}]", ContentType.APPLICATION_JSON_TYPE);
+        verifyOkResult(result, "a,b");
+    }
+    
+    @Test
+    public void testEmptyBodyHasNoElements() throws ClientProtocolException, IOException
+    {
+        verifyOkResult(new PostRequestResult("/post/elements/iterator", "", ContentType.APPLICATION_JSON_TYPE), "");
+    }
+    
+    @Test
+    public void testMalformedElement() throws ClientProtocolException, IOException
+    {
+        verifyUnsupportedMediaTypeResult(new PostRequestResult("/post/elements/stream", "[1,2,{", ContentType.APPLICATION_JSON_TYPE));
+    }
+    
+    @Test
+    public void testInputStreamReadsWholeBody() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/stream/count", LARGE, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, String.valueOf(LARGE.length()));
+    }
+    
+    @Test
+    public void testChannelReadsWholeBody() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new PostRequestResult("/post/stream/channel", LARGE, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        verifyOkResult(result, String.valueOf(LARGE.length()));
+    }
+    
+    @Test
+    public void testUnreadBodyIsDropped() throws ClientProtocolException, IOException
+    {
+        verifyOkResult(new PostRequestResult("/post/stream/ignored", LARGE, ContentType.APPLICATION_OCTET_STREAM_TYPE), "ignored");
+        // The connection is still usable afterwards.
+        verifyOkResult(new PostRequestResult("/post/stream/count", "after", ContentType.APPLICATION_OCTET_STREAM_TYPE), "5");
+    }
+    
+    @Test
+    public void testEmptyBody() throws ClientProtocolException, IOException
+    {
+        verifyOkResult(new PostRequestResult("/post/stream/count", "", ContentType.APPLICATION_OCTET_STREAM_TYPE), "0");
+    }
+    
+    @Test
+    public void testUnsupportedContentType() throws ClientProtocolException, IOException
+    {
+        verifyUnsupportedMediaTypeResult(new PostRequestResult("/post/stream/count", "{}", ContentType.APPLICATION_JSON_TYPE));
+    }
+}
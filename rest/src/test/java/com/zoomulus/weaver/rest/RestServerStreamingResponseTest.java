@@ -0,0 +1,80 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.response.ChunkedResponseBody;
+import com.zoomulus.weaver.rest.testutils.GetRequestResult;
+import com.zoomulus.weaver.rest.testutils.RequestResult;
+
+public class RestServerStreamingResponseTest extends RestServerTestBase
+{
+    @Test
+    public void testLargeStreamingOutputIsChunked() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = Request.Get("http://localhost:22002/get/streamed/output").execute().returnResponse();
+        assertEquals(200, rsp.getStatusLine().getStatusCode());
+        assertEquals(HttpHeaders.Values.CHUNKED, rsp.getFirstHeader(HttpHeaders.Names.TRANSFER_ENCODING).getValue());
+        assertEquals(Strings.repeat("0123456789abcdef", 64 * 1024), EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testStreamingOutputDefaultsToOctetStream() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/streamed/output");
+        verifyContentType(result, ContentType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+    
+    @Test
+    public void testChannelOutput() throws ClientProtocolException, IOException
+    {
+        final RequestResult result = new GetRequestResult("/get/streamed/channel");
+        verifyOkResult(result, "channel");
+        verifyContentType(result, ContentType.TEXT_PLAIN_TYPE);
+    }
+    
+    @Test
+    public void testStreamingOutputInResponse() throws ClientProtocolException, IOException
+    {
+        final HttpResponse rsp = Request.Get("http://localhost:22002/get/streamed/response").execute().returnResponse();
+        assertEquals(200, rsp.getStatusLine().getStatusCode());
+        assertEquals("yes", rsp.getFirstHeader("X-Streamed").getValue());
+        assertEquals("response", EntityUtils.toString(rsp.getEntity()));
+    }
+    
+    @Test
+    public void testStreamedResponsesKeepOrder() throws ClientProtocolException, IOException
+    {
+        for (int i = 0; i < 4; i++)
+        {
+            verifyOkResult(new GetRequestResult("/get/streamed/channel"), "channel");
+            verifyOkResult(new GetRequestResult("/get/binary/bytebuffer"), "buffer");
+        }
+    }
+    
+    @Test
+    public void testFailingOutputCutsResponseShort() throws ClientProtocolException, IOException
+    {
+        try
+        {
+            final HttpResponse rsp = Request.Get("http://localhost:22002/get/streamed/failing").execute().returnResponse();
+            assertTrue(EntityUtils.toByteArray(rsp.getEntity()).length < 2 * ChunkedResponseBody.DEFAULT_CHUNK_SIZE);
+        }
+        catch (IOException e)
+        {
+            // A strict client notices the last chunk is missing.
+        }
+        verifyOkResult(new GetRequestResult("/get/streamed/channel"), "channel");
+    }
+}
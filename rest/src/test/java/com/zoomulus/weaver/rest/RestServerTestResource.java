@@ -1,7 +1,25 @@
 package com.zoomulus.weaver.rest;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -18,16 +36,25 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.annotations.Blocking;
+import com.zoomulus.weaver.rest.annotations.Incremental;
 import com.zoomulus.weaver.rest.annotations.RequiredParam;
 import com.zoomulus.weaver.rest.annotations.StrictParams;
+import com.zoomulus.weaver.rest.response.ChannelOutput;
+import com.zoomulus.weaver.rest.response.ChunkedResponseBody;
 
 @Path("/")
 public class RestServerTestResource
@@ -1116,6 +1143,15 @@ public class RestServerTestResource
         return custom.toString();
     }
     
+    @POST
+    @Path("/post/string/json/incremental")
+    @Consumes(ContentType.APPLICATION_JSON)
+    @Incremental
+    public String postToJsonIncremental(final CustomWithStringCtor custom)
+    {
+        return String.valueOf(custom.getS().length());
+    }
+    
     @POST
     @Path("/post/string/json/noconsumes")
     public String postToJsonNoConsumes(final CustomWithStringCtor custom)
@@ -1432,4 +1468,310 @@ public class RestServerTestResource
     {
         return String.format("%s%s%s%s", header1, header2, header3, header4);
     }
+    
+    @GET
+    @Path("/get/execution/default")
+    public String getDefaultExecutionThread()
+    {
+        return Thread.currentThread().getName();
+    }
+    
+    @GET
+    @Blocking
+    @Path("/get/execution/blocking")
+    public String getBlockingExecutionThread()
+    {
+        return Thread.currentThread().getName();
+    }
+    
+    @GET
+    @Path("/get/async/stage")
+    public CompletionStage<String> getAsyncStage()
+    {
+        return CompletableFuture.supplyAsync(() -> "async stage");
+    }
+    
+    @GET
+    @Path("/get/async/stage/json")
+    @Produces(ContentType.APPLICATION_JSON)
+    public CompletableFuture<SimplePerson> getAsyncStageJson()
+    {
+        return CompletableFuture.supplyAsync(() -> new SimplePerson("Stage Person"));
+    }
+    
+    @GET
+    @Path("/get/async/stage/failed")
+    public CompletionStage<String> getAsyncStageFailed()
+    {
+        final CompletableFuture<String> stage = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> stage.completeExceptionally(new IllegalStateException("failed")));
+        return stage;
+    }
+    
+    @GET
+    @Path("/get/async/suspended")
+    public void getAsyncSuspended(@Suspended final AsyncResponse asyncResponse, @QueryParam("name") final String name)
+    {
+        CompletableFuture.runAsync(() -> asyncResponse.resume("suspended " + name));
+    }
+    
+    static final CompletableFuture<String> suspendedCallback = new CompletableFuture<>();
+    
+    @GET
+    @Path("/get/async/suspended/callback")
+    public void getAsyncSuspendedCallback(@Suspended final AsyncResponse asyncResponse)
+    {
+        asyncResponse.register((CompletionCallback) error ->
+            suspendedCallback.complete(null == error ? "sent" : error.toString()));
+        CompletableFuture.runAsync(() -> asyncResponse.resume("callback"));
+    }
+    
+    @GET
+    @Path("/get/async/suspended/timeout")
+    public void getAsyncSuspendedTimeout(@Suspended final AsyncResponse asyncResponse)
+    {
+        asyncResponse.setTimeout(50, TimeUnit.MILLISECONDS);
+    }
+    
+    @POST
+    @Path("/post/string/length")
+    public String postStringLength(final String payload)
+    {
+        return String.valueOf(payload.length());
+    }
+    
+    @POST
+    @Path("/post/binary/bytebuf")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public ByteBuf postByteBuf(final ByteBuf payload)
+    {
+        return payload.retain();
+    }
+    
+    @POST
+    @Path("/post/binary/bytebuffer")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public String postByteBuffer(final ByteBuffer payload)
+    {
+        return String.valueOf(payload.remaining());
+    }
+    
+    @POST
+    @Path("/post/binary/bytearray")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public byte[] postBinaryBytes(final byte[] payload)
+    {
+        return payload;
+    }
+    
+    @POST
+    @Path("/post/binary/stream")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public String postInputStream(final InputStream payload) throws IOException
+    {
+        return new String(ByteStreams.toByteArray(payload), CharsetUtil.UTF_8);
+    }
+    
+    @POST
+    @Path("/post/stream/count")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public String postStreamCount(final InputStream payload) throws IOException
+    {
+        final byte[] buf = new byte[4096];
+        long count = 0;
+        int n;
+        while (-1 != (n = payload.read(buf)))
+        {
+            count += n;
+        }
+        return String.valueOf(count);
+    }
+    
+    @POST
+    @Path("/post/stream/channel")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public String postChannelCount(final ReadableByteChannel payload) throws IOException
+    {
+        final ByteBuffer buf = ByteBuffer.allocate(4096);
+        long count = 0;
+        int n;
+        while (-1 != (n = payload.read(buf)))
+        {
+            count += n;
+            buf.clear();
+        }
+        return String.valueOf(count);
+    }
+    
+    @POST
+    @Path("/post/stream/ignored")
+    @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+    public String postStreamIgnored(final InputStream payload)
+    {
+        return "ignored";
+    }
+    
+    @GET
+    @Path("/get/binary/bytebuffer")
+    public ByteBuffer getByteBuffer()
+    {
+        return ByteBuffer.wrap("buffer".getBytes(CharsetUtil.UTF_8));
+    }
+    
+    @GET
+    @Path("/get/binary/stream")
+    public InputStream getInputStream()
+    {
+        return new ByteArrayInputStream("stream".getBytes(CharsetUtil.UTF_8));
+    }
+    
+    @GET
+    @Path("/get/binary/produces/text")
+    @Produces(ContentType.TEXT_PLAIN)
+    public byte[] getBytesProducesText()
+    {
+        return "text".getBytes(CharsetUtil.UTF_8);
+    }
+    
+    @GET
+    @Path("/get/streamed/output")
+    public StreamingOutput getStreamingOutput()
+    {
+        return out -> {
+            final byte[] line = "0123456789abcdef".getBytes(CharsetUtil.UTF_8);
+            for (int i = 0; i < 64 * 1024; i++)
+            {
+                out.write(line);
+            }
+        };
+    }
+    
+    @GET
+    @Path("/get/streamed/channel")
+    @Produces(ContentType.TEXT_PLAIN)
+    public ChannelOutput getChannelOutput()
+    {
+        return channel -> channel.write(ByteBuffer.wrap("channel".getBytes(CharsetUtil.UTF_8)));
+    }
+    
+    @GET
+    @Path("/get/streamed/response")
+    public Response getStreamedResponse()
+    {
+        return Response.ok((StreamingOutput) out -> out.write("response".getBytes(CharsetUtil.UTF_8)))
+                .type(ContentType.TEXT_PLAIN)
+                .header("X-Streamed", "yes")
+                .build();
+    }
+    
+    @GET
+    @Path("/get/streamed/failing")
+    public StreamingOutput getFailingStreamingOutput()
+    {
+        return out -> {
+            out.write(new byte[ChunkedResponseBody.DEFAULT_CHUNK_SIZE * 2]);
+            throw new IOException("Output failed");
+        };
+    }
+    
+    @GET
+    @Path("/get/sequence/stream/{n}")
+    public Stream<SimplePerson> getPersonStream(@PathParam("n") final int n)
+    {
+        return IntStream.range(0, n).mapToObj(i -> new SimplePerson("p" + i));
+    }
+    
+    @GET
+    @Path("/get/sequence/iterator")
+    public Iterator<Integer> getIterator()
+    {
+        return Lists.newArrayList(1, 2, 3).iterator();
+    }
+    
+    @GET
+    @Path("/get/sequence/iterable")
+    public Iterable<Integer> getIterable()
+    {
+        return () -> Lists.newArrayList(1, 2, 3).iterator();
+    }
+    
+    @GET
+    @Path("/get/sequence/list")
+    public List<SimplePerson> getList()
+    {
+        return Lists.newArrayList(new SimplePerson("a"), new SimplePerson("b"));
+    }
+    
+    @GET
+    @Path("/get/sequence/ndjson")
+    @Produces(ContentType.APPLICATION_NDJSON)
+    public Iterable<SimplePerson> getNdjson()
+    {
+        return Lists.newArrayList(new SimplePerson("a"), new SimplePerson("b"));
+    }
+    
+    @POST
+    @Path("/post/elements/stream")
+    @Consumes({ContentType.APPLICATION_JSON, ContentType.APPLICATION_NDJSON})
+    public String postElementStream(final Stream<Integer> elements)
+    {
+        return String.valueOf(elements.mapToLong(Integer::longValue).sum());
+    }
+    
+    @POST
+    @Path("/post/elements/iterator")
+    @Consumes(ContentType.APPLICATION_JSON)
+    public String postElementIterator(final Iterator<Map<String, Object>> elements)
+    {
+        final List<Object> names = Lists.newArrayList();
+        while (elements.hasNext())
+        {
+            names.add(elements.next().get("name"));
+        }
+        return Joiner.on(",").join(names);
+    }
+    
+    private static java.nio.file.Path tempFile(final String suffix, final byte[] content) throws IOException
+    {
+        final java.nio.file.Path path = Files.createTempFile("weaver", suffix);
+        path.toFile().deleteOnExit();
+        return Files.write(path, content);
+    }
+    
+    @GET
+    @Path("/get/file/file")
+    public File getFile() throws IOException
+    {
+        // Each request gets a new file; a fixed mtime keeps Last-Modified the same across them.
+        final java.nio.file.Path path = tempFile(".html", "<p>file</p>".getBytes(CharsetUtil.UTF_8));
+        return Files.setLastModifiedTime(path, FileTime.fromMillis(1400000000000L)).toFile();
+    }
+    
+    @GET
+    @Path("/get/file/path/{size}")
+    public java.nio.file.Path getFilePath(@PathParam("size") final int size) throws IOException
+    {
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        return tempFile(".bin", content);
+    }
+    
+    @GET
+    @Path("/get/file/channel")
+    @Produces(ContentType.TEXT_PLAIN)
+    public FileChannel getFileChannel() throws IOException
+    {
+        final FileChannel channel = FileChannel.open(tempFile(".txt", "0123456789".getBytes(CharsetUtil.UTF_8)));
+        return channel.position(2);
+    }
+    
+    @GET
+    @Path("/get/file/missing")
+    public File getMissingFile()
+    {
+        return new File("/no/such/weaver/file");
+    }
 }
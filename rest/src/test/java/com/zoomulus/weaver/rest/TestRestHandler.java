@@ -0,0 +1,341 @@
+package com.zoomulus.weaver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.zoomulus.weaver.core.content.ContentType;
+
+public class TestRestHandler
+{
+    /**
+     * A file that can't be read from anywhere but its start.
+     */
+    public static class UnseekableFileChannel extends FileChannel
+    {
+        private final FileChannel delegate;
+
+        public UnseekableFileChannel(final FileChannel delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public FileChannel position(final long newPosition) throws IOException
+        {
+            throw new IOException("Can't seek");
+        }
+
+        @Override
+        public long position() throws IOException { return delegate.position(); }
+
+        @Override
+        public long size() throws IOException { return delegate.size(); }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException { return delegate.read(dst); }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException { return delegate.read(dsts, offset, length); }
+
+        @Override
+        public int read(final ByteBuffer dst, final long position) throws IOException { return delegate.read(dst, position); }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException { return delegate.write(src); }
+
+        @Override
+        public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException { return delegate.write(srcs, offset, length); }
+
+        @Override
+        public int write(final ByteBuffer src, final long position) throws IOException { return delegate.write(src, position); }
+
+        @Override
+        public FileChannel truncate(final long size) throws IOException { return delegate.truncate(size); }
+
+        @Override
+        public void force(final boolean metaData) throws IOException { delegate.force(metaData); }
+
+        @Override
+        public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+
+        @Override
+        public long transferFrom(final ReadableByteChannel src, final long position, final long count) throws IOException { return delegate.transferFrom(src, position, count); }
+
+        @Override
+        public MappedByteBuffer map(final MapMode mode, final long position, final long size) throws IOException { return delegate.map(mode, position, size); }
+
+        @Override
+        public FileLock lock(final long position, final long size, final boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+
+        @Override
+        public FileLock tryLock(final long position, final long size, final boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+
+        @Override
+        protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+
+    /**
+     * Keeps the buffers it allocates, to check they have all been released.
+     */
+    private static class RecordingAllocator extends AbstractByteBufAllocator
+    {
+        private final List<ByteBuf> allocated = Lists.newArrayList();
+
+        @Override
+        public boolean isDirectBufferPooled()
+        {
+            return false;
+        }
+
+        @Override
+        protected ByteBuf newHeapBuffer(final int initialCapacity, final int maxCapacity)
+        {
+            final ByteBuf buf = Unpooled.buffer(initialCapacity, maxCapacity);
+            allocated.add(buf);
+            return buf;
+        }
+
+        @Override
+        protected ByteBuf newDirectBuffer(final int initialCapacity, final int maxCapacity)
+        {
+            final ByteBuf buf = Unpooled.directBuffer(initialCapacity, maxCapacity);
+            allocated.add(buf);
+            return buf;
+        }
+    }
+
+    private static UnseekableFileChannel unseekable;
+
+    @Path("files")
+    public static class FileResource
+    {
+        @GET
+        @Path("whole")
+        @Produces(ContentType.TEXT_PLAIN)
+        public java.nio.file.Path whole() throws IOException
+        {
+            final java.nio.file.Path path = Files.createTempFile("weaver", ".txt");
+            path.toFile().deleteOnExit();
+            return Files.write(path, "0123456789".getBytes(CharsetUtil.UTF_8));
+        }
+
+        @GET
+        @Path("unseekable")
+        @Produces(ContentType.TEXT_PLAIN)
+        public FileChannel unseekable() throws IOException
+        {
+            unseekable = new UnseekableFileChannel(FileChannel.open(whole()));
+            return unseekable;
+        }
+    }
+
+    public static class Unconvertible { }
+
+    /**
+     * Fails every conversion with an unchecked exception.
+     */
+    public static class UnconvertibleProvider implements ParamConverterProvider
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ParamConverter<T> getConverter(final Class<T> rawType, final Type genericType, final Annotation[] annotations)
+        {
+            if (Unconvertible.class != rawType) return null;
+            return (ParamConverter<T>) new ParamConverter<Unconvertible>() {
+                @Override
+                public Unconvertible fromString(final String value)
+                {
+                    throw new IllegalStateException("Can't convert " + value);
+                }
+
+                @Override
+                public String toString(final Unconvertible value)
+                {
+                    return null;
+                }
+            };
+        }
+    }
+
+    @Path("async")
+    public static class AsyncResource
+    {
+        @GET
+        @Path("converted")
+        @Produces(ContentType.TEXT_PLAIN)
+        public CompletionStage<String> converted(@QueryParam("value") final Unconvertible value)
+        {
+            return CompletableFuture.completedFuture("converted");
+        }
+    }
+
+    private RestApplication application;
+    private EmbeddedChannel channel;
+    private int writesAfterClose;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        application = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(FileResource.class))
+                .build();
+        final SSLEngine engine = SSLContext.getDefault().createSSLEngine();
+        engine.setUseClientMode(false);
+        // RestHandler only looks for the SslHandler; behind it, it leaves the writes in the clear.
+        channel = new EmbeddedChannel(new ChunkedWriteHandler(), new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) throws Exception
+            {
+                if (! ctx.channel().isOpen()) writesAfterClose++;
+                super.write(ctx, msg, promise);
+            }
+        }, new RestHandler(application), new SslHandler(engine));
+    }
+
+    @After
+    public void tearDown()
+    {
+        channel.finish();
+        application.shutdown();
+    }
+
+    private void get(final String uri)
+    {
+        get(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri));
+    }
+
+    private void get(final HttpRequest request)
+    {
+        get(channel, request);
+    }
+
+    private static void get(final EmbeddedChannel channel, final HttpRequest request)
+    {
+        channel.writeInbound(request);
+        channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+        channel.runPendingTasks();
+    }
+
+    @Test
+    public void testWholeFileOverSslIsSentThroughHttpChunkedInput()
+    {
+        get("/files/whole");
+
+        final HttpResponse head = (HttpResponse) channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, head.getStatus());
+        final StringBuilder body = new StringBuilder();
+        int lastContents = 0;
+        Object msg;
+        while (null != (msg = channel.readOutbound()))
+        {
+            final HttpContent content = (HttpContent) msg;
+            body.append(content.content().toString(CharsetUtil.UTF_8));
+            if (content instanceof LastHttpContent) lastContents++;
+            content.release();
+        }
+        assertEquals("0123456789", body.toString());
+        assertEquals(1, lastContents);
+        assertTrue(channel.isOpen());
+        assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test
+    public void testFailedFilePartClosesFileAndChannel()
+    {
+        final RecordingAllocator alloc = new RecordingAllocator();
+        channel.config().setAllocator(alloc);
+        final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/files/unseekable");
+        // The first range reads from the start; the second has to seek, and fails.
+        request.headers().set(HttpHeaders.Names.RANGE, "bytes=0-1,3-4");
+        get(request);
+
+        assertFalse(unseekable.isOpen());
+        assertFalse(channel.isOpen());
+        assertNull(channel.readOutbound());
+        assertEquals(0, writesAfterClose);
+        assertFalse(alloc.allocated.isEmpty());
+        for (final ByteBuf buf : alloc.allocated)
+        {
+            assertEquals(0, buf.refCnt());
+        }
+    }
+
+    @Test
+    public void testUncheckedFailureBindingAsyncResourceIsAnswered()
+    {
+        final RestApplication async = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(AsyncResource.class))
+                .paramConverterProvider(new UnconvertibleProvider())
+                .build();
+        final EmbeddedChannel asyncChannel = new EmbeddedChannel(new ChunkedWriteHandler(), new RestHandler(async));
+        get(asyncChannel, new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/async/converted?value=x"));
+
+        final FullHttpResponse rsp = (FullHttpResponse) asyncChannel.readOutbound();
+        assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, rsp.getStatus());
+        rsp.release();
+        assertTrue(asyncChannel.isOpen());
+        assertTrue(asyncChannel.config().isAutoRead());
+        asyncChannel.finish();
+        async.shutdown();
+    }
+
+    @Test
+    public void testPipelineErrorClosesConnection()
+    {
+        channel.pipeline().fireExceptionCaught(new DecoderException("Bad request line"));
+        channel.runPendingTasks();
+        assertFalse(channel.isOpen());
+    }
+}
@@ -0,0 +1,104 @@
+package com.zoomulus.weaver.rest.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.zoomulus.weaver.rest.content.RequestBody;
+
+/**
+ * Cost of binding a JSON body received in 8 KB chunks, by decoding it to a
+ * String first (as ParamBinder did before) and by parsing its bytes in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BodyBindingBenchmark
+{
+    public static class Item
+    {
+        public int id;
+        public String name;
+        public double score;
+        public List<String> tags;
+    }
+
+    public static class Payload
+    {
+        public List<Item> items;
+    }
+
+    private static final int CHUNK = 8192;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ByteBuf chunks;
+    private RequestBody body;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final Payload payload = new Payload();
+        payload.items = Lists.newArrayList();
+        byte[] json = new byte[0];
+        while (json.length < size)
+        {
+            final Item item = new Item();
+            item.id = payload.items.size();
+            item.name = "item-" + item.id;
+            item.score = item.id * 1.5;
+            item.tags = Lists.newArrayList("alpha", "beta", "gamma");
+            payload.items.add(item);
+            json = mapper.writeValueAsBytes(payload);
+        }
+
+        final CompositeByteBuf composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (int offset=0; offset<json.length; offset+=CHUNK)
+        {
+            final int length = Math.min(CHUNK, json.length - offset);
+            composite.addComponent(Unpooled.directBuffer(length).writeBytes(json, offset, length));
+            composite.writerIndex(composite.writerIndex() + length);
+        }
+        chunks = composite;
+        body = RequestBody.of(composite);
+    }
+
+    @Benchmark
+    public Payload viaString() throws Exception
+    {
+        return mapper.readValue(chunks.toString(CharsetUtil.UTF_8), Payload.class);
+    }
+
+    @Benchmark
+    public Payload viaBytes() throws Exception
+    {
+        try (final InputStream in = body.openStream())
+        {
+            return mapper.readValue(in, Payload.class);
+        }
+    }
+}
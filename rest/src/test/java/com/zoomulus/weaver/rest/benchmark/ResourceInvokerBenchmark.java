@@ -0,0 +1,97 @@
+package com.zoomulus.weaver.rest.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zoomulus.weaver.rest.resource.ResourceFactory;
+import com.zoomulus.weaver.rest.resource.ResourceInvoker;
+
+/**
+ * Cost of constructing a resource and calling its endpoint, reflectively (as
+ * Resource did before) and through a ResourceInvoker built at scan time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceInvokerBenchmark
+{
+    public static class Target
+    {
+        public String none()
+        {
+            return "none";
+        }
+
+        public String three(final String a, final int b, final Long c)
+        {
+            return a;
+        }
+
+        public String eight(final String a, final int b, final Long c, final String d,
+                final boolean e, final Integer f, final double g, final String h)
+        {
+            return h;
+        }
+    }
+
+    @Param({"0", "3", "8"})
+    public int arity;
+
+    private Method method;
+    private ResourceInvoker invoker;
+    private ResourceFactory factory;
+    private Object[] args;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        switch (arity)
+        {
+            case 0:
+                method = Target.class.getMethod("none");
+                args = new Object[0];
+                break;
+            case 3:
+                method = Target.class.getMethod("three", String.class, int.class, Long.class);
+                args = new Object[] { "a", 1, 2L };
+                break;
+            default:
+                method = Target.class.getMethod("eight", String.class, int.class, Long.class, String.class,
+                        boolean.class, Integer.class, double.class, String.class);
+                args = new Object[] { "a", 1, 2L, "d", true, 3, 4.0, "h" };
+                break;
+        }
+        invoker = ResourceInvoker.create(method);
+        factory = ResourceInvoker.constructor(Target.class);
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception
+    {
+        if (method.getParameters().length != args.length) return null;
+        final Object target = Target.class.getConstructor((Class<?>[])null).newInstance((Object[])null);
+        return method.invoke(target, args);
+    }
+
+    @Benchmark
+    public Object precompiled() throws Exception
+    {
+        if (invoker.getParameterCount() != args.length) return null;
+        return invoker.invoke(factory.newInstance(), args);
+    }
+}
@@ -0,0 +1,102 @@
+package com.zoomulus.weaver.rest.benchmark;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Sets;
+import com.zoomulus.weaver.rest.RestApplication;
+import com.zoomulus.weaver.rest.RestServerTestResource;
+import com.zoomulus.weaver.rest.RestServerTestResourceFormData;
+import com.zoomulus.weaver.rest.resource.PathCaptures;
+import com.zoomulus.weaver.rest.resource.Resource;
+import com.zoomulus.weaver.rest.resource.ResourceIdentifier;
+import com.zoomulus.weaver.rest.resource.ResourcePath;
+import com.zoomulus.weaver.rest.resource.ResourceRouter;
+import com.zoomulus.weaver.rest.resource.RouteStatus;
+
+/**
+ * Path matching cost per request.  Run with the gc profiler (the "benchmark"
+ * profile does this) and compare gc.alloc.rate.norm: the trie match itself
+ * should report ~0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceRouterBenchmark
+{
+    @Param({"/get/return/normal",
+        "/get/multiple/first/abc/second/def?x=1",
+        "/get/matrix/multiple/first;p1=1/second;p2=2"})
+    public String uri;
+
+    private RestApplication application;
+    private ResourceRouter router;
+    private PathCaptures captures;
+    private String param;
+
+    @Setup
+    public void setUp()
+    {
+        application = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(RestServerTestResource.class, RestServerTestResourceFormData.class))
+                .build();
+        router = application.getRouter();
+        captures = new PathCaptures();
+        param = uri.contains("matrix") ? "p2" : "id";
+    }
+
+    private int pathEnd()
+    {
+        final int queryStart = uri.indexOf('?');
+        return -1 == queryStart ? uri.length() : queryStart;
+    }
+
+    @Benchmark
+    public RouteStatus trieMatch()
+    {
+        return router.match(HttpMethod.GET, uri, pathEnd(), captures);
+    }
+
+    @Benchmark
+    public String trieMatchAndBind()
+    {
+        router.match(HttpMethod.GET, uri, pathEnd(), captures);
+        final ResourcePath rp = captures.toResourcePath();
+        return param.equals("id") ? rp.get(param) : rp.matrixParamGet(param);
+    }
+
+    @Benchmark
+    public Resource linearParse()
+    {
+        final String path = uri.split("\\?")[0];
+        Resource resource = null;
+        for (final Entry<ResourceIdentifier, Resource> entry : application.getResources().entrySet())
+        {
+            final Optional<ResourcePath> rp = ResourcePath.withPattern(entry.getKey().getPath()).parse(path);
+            if (rp.isPresent())
+            {
+                resource = entry.getValue();
+                if (entry.getKey().getMethod() == HttpMethod.GET) return resource;
+            }
+        }
+        return resource;
+    }
+}
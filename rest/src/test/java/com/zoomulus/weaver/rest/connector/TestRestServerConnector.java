@@ -0,0 +1,93 @@
+package com.zoomulus.weaver.rest.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.google.inject.Guice;
+import com.zoomulus.weaver.rest.RestApplication;
+import com.zoomulus.weaver.rest.resource.DefaultResourceScannerStrategy;
+import com.zoomulus.weaver.rest.resource.SingleFull;
+
+public class TestRestServerConnector
+{
+    private RestServerConnector buildConnector()
+    {
+        return RestServerConnector.builder()
+                .withResource(SingleFull.class)
+                .build();
+    }
+    
+    @Test
+    public void testBuildScansResourcesOnce()
+    {
+        final RestServerConnector connector = buildConnector();
+        final RestApplication application = connector.getApplication();
+        assertEquals(8, application.getResources().size());
+        
+        connector.getChannelInitializer();
+        connector.getChannelInitializer();
+        assertSame(application, connector.getApplication());
+    }
+    
+    @Test
+    public void testApplicationModelIsImmutable()
+    {
+        final RestApplication application = buildConnector().getApplication();
+        try
+        {
+            application.getResources().clear();
+            fail("Expected exception but none thrown");
+        }
+        catch (UnsupportedOperationException e) { }
+    }
+    
+    @Test
+    public void testRouteCacheIsOptional()
+    {
+        assertFalse(buildConnector().getApplication().getRouteCache().isPresent());
+        assertTrue(RestServerConnector.builder()
+                .withResource(SingleFull.class)
+                .withRouteCache(100)
+                .build()
+                .getApplication()
+                .getRouteCache()
+                .isPresent());
+    }
+    
+    @Test
+    public void testCustomScannerStrategyAlone()
+    {
+        assertEquals(8, RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(SingleFull.class))
+                .scannerStrategy(new DefaultResourceScannerStrategy())
+                .build()
+                .getResources()
+                .size());
+    }
+    
+    @Test(expected=IllegalStateException.class)
+    public void testCustomScannerStrategyRejectsInjector()
+    {
+        RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(SingleFull.class))
+                .scannerStrategy(new DefaultResourceScannerStrategy())
+                .injector(Guice.createInjector())
+                .build();
+    }
+    
+    @Test(expected=IllegalStateException.class)
+    public void testCustomScannerStrategyRejectsJacksonConfiguration()
+    {
+        RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(SingleFull.class))
+                .scannerStrategy(new DefaultResourceScannerStrategy())
+                .objectMapperConfigurer(mapper -> { })
+                .build();
+    }
+}
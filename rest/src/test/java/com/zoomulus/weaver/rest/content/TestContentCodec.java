@@ -0,0 +1,69 @@
+package com.zoomulus.weaver.rest.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.collect.Lists;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.SimplePerson;
+import com.zoomulus.weaver.rest.response.ResponseFactory;
+import com.zoomulus.weaver.rest.response.RestResponse;
+
+public class TestContentCodec
+{
+    @Test
+    public void testReadersAndWritersAreCached()
+    {
+        final ContentCodec codec = ContentCodec.builder().build();
+        assertSame(codec.jsonReader(SimplePerson.class), codec.jsonReader(SimplePerson.class));
+        assertSame(codec.xmlReader(SimplePerson.class), codec.xmlReader(SimplePerson.class));
+        assertSame(codec.jsonWriter(SimplePerson.class), codec.jsonWriter(SimplePerson.class));
+        assertSame(codec.xmlWriter(SimplePerson.class), codec.xmlWriter(SimplePerson.class));
+        assertNotSame(codec.jsonWriter(SimplePerson.class), codec.xmlWriter(SimplePerson.class));
+    }
+    
+    @Test
+    public void testModulesAndConfigurationApplyToBothMappers()
+    {
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(SimplePerson.class, new JsonSerializer<SimplePerson>() {
+            @Override
+            public void serialize(final SimplePerson value, final JsonGenerator gen, final SerializerProvider serializers)
+                    throws IOException
+            {
+                gen.writeString("person:" + value.getName());
+            }
+        });
+        final ContentCodec codec = ContentCodec.builder()
+                .module(module)
+                .configure(mapper -> mapper.enable(SerializationFeature.INDENT_OUTPUT))
+                .build();
+        assertTrue(codec.getJsonMapper().isEnabled(SerializationFeature.INDENT_OUTPUT));
+        assertTrue(codec.getXmlMapper().isEnabled(SerializationFeature.INDENT_OUTPUT));
+        
+        final RestResponse rsp = new ResponseFactory(codec).generate(new SimplePerson("Ann"),
+                Lists.newArrayList(ContentType.APPLICATION_JSON_TYPE), Lists.newArrayList());
+        final ByteBuf buf = rsp.getContent();
+        try
+        {
+            assertEquals("\"person:Ann\"", buf.toString(CharsetUtil.UTF_8));
+        }
+        finally
+        {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.zoomulus.weaver.rest.content;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.zoomulus.weaver.core.content.ContentType;
+
+public class TestHttpContent
+{
+    private static HttpContent create(final byte[] bytes, final String contentType)
+    {
+        final List<ContentType> types = Lists.newArrayList(ContentType.valueOf(contentType));
+        return HttpContent.create(RequestBody.of(Unpooled.wrappedBuffer(bytes)), types, Lists.newArrayList()).get();
+    }
+    
+    @Test
+    public void testJsonIsNotPercentDecoded()
+    {
+        final byte[] bytes = "{\"s\":\"50%+a\"}".getBytes(CharsetUtil.UTF_8);
+        final HttpContent content = create(bytes, ContentType.APPLICATION_JSON);
+        assertEquals("{\"s\":\"50%+a\"}", content.getContent());
+        assertArrayEquals(bytes, content.getContentBytes());
+    }
+    
+    @Test
+    public void testFormIsPercentDecoded()
+    {
+        final HttpContent content = create("a=1+2%26".getBytes(CharsetUtil.UTF_8), ContentType.APPLICATION_FORM_URLENCODED);
+        assertTrue(content.isFormUrlEncoded());
+        assertEquals("a=1 2&", content.getContent());
+        assertEquals("a=1+2%26", content.getRawContent());
+    }
+    
+    @Test
+    public void testCharsetFromContentType()
+    {
+        final byte[] latin1 = "café".getBytes(CharsetUtil.ISO_8859_1);
+        final HttpContent content = create(latin1, "text/plain; charset=ISO-8859-1");
+        assertEquals(CharsetUtil.ISO_8859_1, content.getCharset());
+        assertEquals("café", content.getContent());
+        assertArrayEquals(latin1, content.getContentBytes());
+    }
+    
+    @Test
+    public void testUnknownCharsetFallsBackToUtf8()
+    {
+        final HttpContent content = create("café".getBytes(CharsetUtil.UTF_8), "text/plain; charset=no-such-charset");
+        assertEquals(CharsetUtil.UTF_8, content.getCharset());
+        assertEquals("café", content.getContent());
+    }
+    
+    @Test
+    public void testEmptyBodyHasNoContent()
+    {
+        assertFalse(HttpContent.create(RequestBody.empty(),
+                Lists.newArrayList(ContentType.TEXT_PLAIN_TYPE), Lists.newArrayList()).isPresent());
+    }
+}
@@ -0,0 +1,82 @@
+package com.zoomulus.weaver.rest.content;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class TestRequestBody
+{
+    private static CompositeByteBuf chunked(final byte[] bytes, final int split)
+    {
+        final CompositeByteBuf composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        composite.addComponent(Unpooled.copiedBuffer(bytes, 0, split));
+        composite.addComponent(Unpooled.copiedBuffer(bytes, split, bytes.length - split));
+        composite.writerIndex(bytes.length);
+        return composite;
+    }
+    
+    @Test
+    public void testCharacterSplitAcrossChunks()
+    {
+        final byte[] bytes = "café au lait".getBytes(CharsetUtil.UTF_8);
+        // The two bytes of the e-acute land in different chunks.
+        final RequestBody body = RequestBody.of(chunked(bytes, 4));
+        assertEquals(bytes.length, body.length());
+        assertEquals("café au lait", body.asString());
+        assertArrayEquals(bytes, body.asBytes());
+    }
+    
+    @Test
+    public void testDecodedOnce()
+    {
+        final RequestBody body = RequestBody.of(chunked("abcdef".getBytes(CharsetUtil.UTF_8), 3));
+        assertSame(body.asString(), body.asString());
+        assertSame(body.asBytes(), body.asBytes());
+    }
+    
+    @Test
+    public void testContentIsAReadOnlyView()
+    {
+        final ByteBuf buf = chunked("abcdef".getBytes(CharsetUtil.UTF_8), 3);
+        final RequestBody body = RequestBody.of(buf);
+        final ByteBuf view = body.content();
+        assertEquals(6, view.readableBytes());
+        view.skipBytes(3);
+        assertEquals("abcdef", body.asString());
+        try
+        {
+            view.setByte(0, 'x');
+        }
+        catch (UnsupportedOperationException e) { }
+        assertEquals('a', buf.getByte(0));
+    }
+    
+    @Test
+    public void testReleaseFreesBuffer()
+    {
+        final ByteBuf buf = chunked("abcdef".getBytes(CharsetUtil.UTF_8), 3);
+        final RequestBody body = RequestBody.of(buf);
+        body.release();
+        assertEquals(0, buf.refCnt());
+        body.release();
+    }
+    
+    @Test
+    public void testEmpty()
+    {
+        assertTrue(RequestBody.empty().isEmpty());
+        assertTrue(RequestBody.of((String) null).isEmpty());
+        assertFalse(RequestBody.of("x").isEmpty());
+        assertEquals("", RequestBody.empty().asString());
+        RequestBody.empty().release();
+        assertTrue(RequestBody.empty().isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+package com.zoomulus.weaver.rest.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class TestRequestBodyStream
+{
+    private EmbeddedChannel channel;
+    
+    @Before
+    public void setUp()
+    {
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+    }
+    
+    private static ByteBuf chunk(final String s)
+    {
+        return Unpooled.copiedBuffer(s, CharsetUtil.UTF_8);
+    }
+    
+    @Test
+    public void testReadsChunksInOrder() throws IOException
+    {
+        final RequestBodyStream stream = new RequestBodyStream(channel);
+        stream.offer(chunk("abc"));
+        stream.offer(chunk("def"));
+        stream.finish();
+        assertEquals("abcdef", new String(ByteStreams.toByteArray(stream), CharsetUtil.UTF_8));
+        assertEquals(-1, stream.read());
+    }
+    
+    @Test
+    public void testReadsIntoByteBuffer() throws IOException
+    {
+        final RequestBodyStream stream = new RequestBodyStream(channel);
+        stream.offer(chunk("abcdef"));
+        stream.finish();
+        final ByteBuffer dst = ByteBuffer.allocate(4);
+        assertEquals(4, stream.read(dst));
+        assertFalse(dst.hasRemaining());
+        dst.clear();
+        assertEquals(2, stream.read(dst));
+        assertEquals(-1, stream.read(dst));
+    }
+    
+    @Test
+    public void testReaderWaitsForChunks() throws Exception
+    {
+        final RequestBodyStream stream = new RequestBodyStream(channel);
+        final CompletableFuture<byte[]> read = CompletableFuture.supplyAsync(() -> {
+            try
+            {
+                return ByteStreams.toByteArray(stream);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        stream.offer(chunk("late"));
+        stream.offer(chunk(" body"));
+        stream.finish();
+        assertEquals("late body", new String(read.get(5, TimeUnit.SECONDS), CharsetUtil.UTF_8));
+    }
+    
+    @Test
+    public void testFullQueueStopsReading() throws IOException
+    {
+        final RequestBodyStream stream = new RequestBodyStream(channel, 4);
+        for (int i=0; i<4; i++)
+        {
+            stream.offer(chunk("x"));
+        }
+        assertFalse(channel.config().isAutoRead());
+        
+        stream.read();
+        channel.runPendingTasks();
+        assertFalse(channel.config().isAutoRead());
+        
+        stream.read();
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+    }
+    
+    @Test
+    public void testCloseDropsBody() throws IOException
+    {
+        final RequestBodyStream stream = new RequestBodyStream(channel);
+        final ByteBuf queued = chunk("queued");
+        stream.offer(queued);
+        stream.close();
+        assertEquals(0, queued.refCnt());
+        assertFalse(stream.isOpen());
+        
+        final ByteBuf late = chunk("late");
+        stream.offer(late);
+        assertEquals(0, late.refCnt());
+        try
+        {
+            stream.read();
+            fail("Read from a closed stream");
+        }
+        catch (ClosedChannelException e) { }
+    }
+    
+    @Test
+    public void testFailureReachesReader()
+    {
+        final RequestBodyStream stream = new RequestBodyStream(channel);
+        stream.offer(chunk("partial"));
+        stream.fail(new ClosedChannelException());
+        try
+        {
+            stream.read();
+            fail("Read from a failed stream");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getCause() instanceof ClosedChannelException);
+        }
+    }
+}
@@ -79,4 +79,22 @@ public class IntelligentContentTypeResolverStrategyTest
         assertTrue(ct.isPresent());
         assertEquals(ContentType.TEXT_PLAIN_TYPE, ct.get());
     }
+    
+    @Test
+    public void testTextProvidedNdjsonExpectedReturnsNdjson()
+    {
+        final Optional<ContentType> ct = sut.resolve(Lists.newArrayList(ContentType.TEXT_PLAIN_TYPE),
+                Lists.newArrayList(ContentType.APPLICATION_NDJSON_TYPE, ContentType.APPLICATION_XML_TYPE));
+        assertTrue(ct.isPresent());
+        assertEquals(ContentType.APPLICATION_NDJSON_TYPE, ct.get());
+    }
+    
+    @Test
+    public void testTextProvidedJsonPreferredToNdjson()
+    {
+        final Optional<ContentType> ct = sut.resolve(Lists.newArrayList(ContentType.TEXT_PLAIN_TYPE),
+                Lists.newArrayList(ContentType.APPLICATION_NDJSON_TYPE, ContentType.APPLICATION_JSON_TYPE));
+        assertTrue(ct.isPresent());
+        assertEquals(ContentType.APPLICATION_JSON_TYPE, ct.get());
+    }
 }
@@ -0,0 +1,184 @@
+package com.zoomulus.weaver.rest.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.RestApplication;
+import com.zoomulus.weaver.rest.annotations.Blocking;
+import com.zoomulus.weaver.rest.annotations.NonBlocking;
+import com.zoomulus.weaver.rest.resource.Resource;
+
+public class TestExecutionStrategy
+{
+    @Blocking
+    @Path("blocking")
+    public static class BlockingResource
+    {
+        @GET
+        public String get() { return "get"; }
+
+        @GET
+        @NonBlocking
+        @Path("fast")
+        public String fast() { return "fast"; }
+    }
+
+    @Path("streaming")
+    public static class StreamingResource
+    {
+        @POST
+        @Consumes(ContentType.APPLICATION_OCTET_STREAM)
+        public String post(final InputStream body) { return "post"; }
+
+        @PUT
+        @Consumes(ContentType.APPLICATION_JSON)
+        public String put(final Stream<String> body) { return "put"; }
+    }
+
+    @Path("plain")
+    public static class PlainResource
+    {
+        @GET
+        public String get() { return "get"; }
+    }
+
+    private static Resource resource(final RestApplication application, final String path)
+    {
+        return application.getRouter().route(HttpMethod.GET, path).get().getResource().get();
+    }
+
+    @Test
+    public void testModeResolvedFromAnnotations() throws Exception
+    {
+        assertEquals(ExecutionMode.BLOCKING, ExecutionMode.of(BlockingResource.class, BlockingResource.class.getMethod("get")));
+        assertEquals(ExecutionMode.NON_BLOCKING, ExecutionMode.of(BlockingResource.class, BlockingResource.class.getMethod("fast")));
+        assertEquals(ExecutionMode.DEFAULT, ExecutionMode.of(PlainResource.class, PlainResource.class.getMethod("get")));
+    }
+
+    @Test
+    public void testStrategySelectedPerResource()
+    {
+        final ExecutionStrategy blocking = ExecutionStrategy.workerPool(1, 1);
+        final RestApplication application = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(BlockingResource.class, PlainResource.class))
+                .blockingExecutionStrategy(blocking)
+                .build();
+        assertSame(blocking, application.executionStrategyFor(resource(application, "/blocking")));
+        assertTrue(application.executionStrategyFor(resource(application, "/blocking/fast")).isInline());
+        assertTrue(application.executionStrategyFor(resource(application, "/plain")).isInline());
+        blocking.shutdown();
+    }
+
+    @Test
+    public void testDefaultBlockingStrategyIsWorkerPool()
+    {
+        final RestApplication application = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(BlockingResource.class))
+                .build();
+        assertTrue(application.getBlockingExecutionStrategy() instanceof WorkerPoolExecutionStrategy);
+        application.getBlockingExecutionStrategy().shutdown();
+
+        final ExecutionStrategy pool = ExecutionStrategy.workerPool(2, 2);
+        assertSame(pool, RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(BlockingResource.class))
+                .executionStrategy(pool)
+                .build()
+                .getBlockingExecutionStrategy());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testShutdownStopsOnlyTheApplicationsOwnStrategy()
+    {
+        final RestApplication application = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(BlockingResource.class))
+                .build();
+        application.shutdown();
+        try
+        {
+            application.getBlockingExecutionStrategy().execute(() -> { });
+            throw new AssertionError("Expected RejectedExecutionException");
+        }
+        catch (RejectedExecutionException e) { }
+
+        final ExecutionStrategy blocking = ExecutionStrategy.workerPool(1, 1);
+        final RestApplication withOwn = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(BlockingResource.class))
+                .blockingExecutionStrategy(blocking)
+                .build();
+        withOwn.shutdown();
+        blocking.execute(() -> { });
+        blocking.shutdown();
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testStreamingRejectsInlineBlockingStrategy()
+    {
+        RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(StreamingResource.class))
+                .blockingExecutionStrategy(ExecutionStrategy.inline())
+                .build();
+    }
+
+    @Test
+    public void testStreamingRunsOnWorkerPoolByDefault()
+    {
+        final RestApplication application = RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(StreamingResource.class))
+                .build();
+        final Resource post = application.getRouter().route(HttpMethod.POST, "/streaming").get().getResource().get();
+        assertTrue(application.executionStrategyFor(post) instanceof WorkerPoolExecutionStrategy);
+        application.shutdown();
+    }
+
+    @Test
+    public void testWorkerPoolRejectsWhenQueueFull() throws Exception
+    {
+        final ExecutionStrategy pool = ExecutionStrategy.workerPool(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> {
+            started.countDown();
+            try { release.await(); } catch (InterruptedException e) { }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pool.execute(() -> { });
+        try
+        {
+            pool.execute(() -> { });
+            throw new AssertionError("Expected RejectedExecutionException");
+        }
+        catch (RejectedExecutionException e) { }
+        finally
+        {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testVirtualThreadsUnsupported()
+    {
+        assumeFalse(VirtualThreadExecutionStrategy.isSupported());
+        ExecutionStrategy.virtualThreads();
+    }
+}
@@ -0,0 +1,143 @@
+package com.zoomulus.weaver.rest.jaxrs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WeaverAsyncResponseTest
+{
+    private ScheduledExecutorService scheduler;
+    
+    @Before
+    public void setUp()
+    {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+    
+    @After
+    public void tearDown()
+    {
+        scheduler.shutdownNow();
+    }
+    
+    @Test
+    public void testResumeCompletesOnce() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        assertTrue(rsp.isSuspended());
+        assertTrue(rsp.resume("first"));
+        assertFalse(rsp.resume("second"));
+        assertFalse(rsp.cancel());
+        assertTrue(rsp.isDone());
+        assertFalse(rsp.isCancelled());
+        assertEquals("first", rsp.getOutcome().toCompletableFuture().get());
+    }
+    
+    @Test
+    public void testCancel() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        assertTrue(rsp.cancel(10));
+        assertTrue(rsp.cancel());
+        assertTrue(rsp.isCancelled());
+        assertFalse(rsp.resume("late"));
+        assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                ((Response) rsp.getOutcome().toCompletableFuture().get()).getStatus());
+    }
+    
+    @Test
+    public void testTimeoutResumesWithServiceUnavailable() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        assertTrue(rsp.setTimeout(10, TimeUnit.MILLISECONDS));
+        try
+        {
+            rsp.getOutcome().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof ServiceUnavailableException);
+            return;
+        }
+        throw new AssertionError("Timeout did not fail the response");
+    }
+    
+    @Test
+    public void testTimeoutHandlerMayResume() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        rsp.setTimeoutHandler(r -> r.resume("handled"));
+        rsp.setTimeout(10, TimeUnit.MILLISECONDS);
+        assertEquals("handled", rsp.getOutcome().toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testCompletionCallback() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        final AtomicReference<Throwable> seen = new AtomicReference<>();
+        final CompletionCallback callback = t -> seen.set(null != t ? t : new Throwable("none"));
+        assertTrue(rsp.register(callback).contains(CompletionCallback.class));
+        assertTrue(rsp.register(new Object()).isEmpty());
+        final IllegalStateException failure = new IllegalStateException();
+        rsp.resume(failure);
+        assertNull(seen.get());
+        rsp.sent(Optional.empty());
+        assertEquals(failure, seen.get());
+    }
+    
+    @Test
+    public void testCompletionCallbackRunsOnceResponseIsSent() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        final AtomicReference<Throwable> seen = new AtomicReference<>();
+        rsp.register((CompletionCallback) t -> seen.set(null != t ? t : new Throwable("none")));
+        rsp.resume("done");
+        assertNull(seen.get());
+        
+        final IOException failure = new IOException("Connection reset");
+        rsp.sent(Optional.of(failure));
+        assertEquals(failure, seen.get());
+        
+        // Only once.
+        rsp.sent(Optional.empty());
+        assertEquals(failure, seen.get());
+    }
+    
+    @Test
+    public void testResumedStateIsSetBeforeDependentsRun() throws Exception
+    {
+        final WeaverAsyncResponse rsp = new WeaverAsyncResponse(scheduler);
+        final AtomicReference<Throwable> seen = new AtomicReference<>();
+        final AtomicReference<Boolean> timeoutSet = new AtomicReference<>();
+        rsp.register((CompletionCallback) seen::set);
+        rsp.setTimeout(50, TimeUnit.MILLISECONDS);
+        // The response is sent from the completing thread, as RestHandler does on the event loop.
+        rsp.getOutcome().whenComplete((value, error) -> {
+            timeoutSet.set(rsp.setTimeout(50, TimeUnit.MILLISECONDS));
+            rsp.sent(Optional.empty());
+        });
+        final IllegalStateException failure = new IllegalStateException();
+        assertTrue(rsp.resume(failure));
+        assertEquals(failure, seen.get());
+        assertFalse(timeoutSet.get());
+    }
+}
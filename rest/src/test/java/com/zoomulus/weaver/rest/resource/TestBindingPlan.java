@@ -0,0 +1,227 @@
+package com.zoomulus.weaver.rest.resource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.CharsetUtil;
+
+import java.util.Iterator;
+import java.util.Optional;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.CustomWithStringCtor;
+import com.zoomulus.weaver.rest.annotations.Incremental;
+import com.zoomulus.weaver.rest.annotations.RequiredParam;
+import com.zoomulus.weaver.rest.annotations.StrictParams;
+import com.zoomulus.weaver.rest.content.HttpContent;
+import com.zoomulus.weaver.rest.content.RequestBody;
+import com.zoomulus.weaver.rest.content.RequestBodyStream;
+
+public class TestBindingPlan
+{
+    public static class Endpoints
+    {
+        public String params(@PathParam("id") int id,
+                @QueryParam("q") String q,
+                @HeaderParam("X-Count") @DefaultValue("7") long count,
+                @QueryParam("opt") String opt)
+        {
+            return null;
+        }
+
+        public String required(@QueryParam("q") @RequiredParam String q)
+        {
+            return null;
+        }
+
+        public void suspended(@Suspended AsyncResponse asyncResponse) { }
+
+        public String body(CustomWithStringCtor custom)
+        {
+            return null;
+        }
+
+        @Incremental
+        public String incremental(CustomWithStringCtor custom)
+        {
+            return null;
+        }
+
+        public String elements(Iterator<Integer> elements)
+        {
+            return null;
+        }
+
+        @StrictParams
+        public String form(@FormParam("f") String f)
+        {
+            return null;
+        }
+    }
+
+    private static BindingPlan plan(final String name) throws Exception
+    {
+        for (final java.lang.reflect.Method m : Endpoints.class.getMethods())
+        {
+            if (m.getName().equals(name)) return BindingPlan.compile(m);
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static ResourceArgs bind(final BindingPlan plan, final HttpHeaders headers) throws Exception
+    {
+        return ResourceArgs.builder()
+                .resourcePath(ResourcePath.withPattern("/things/{id}").parse("/things/42").get())
+                .httpMethod(HttpMethod.GET)
+                .httpHeaders(Optional.of(headers))
+                .queryParams(ImmutableMap.of("q", Lists.newArrayList("first", "second")))
+                .bindingPlan(plan)
+                .build();
+    }
+
+    @Test
+    public void testCompiledPlan() throws Exception
+    {
+        final BindingPlan params = plan("params");
+        assertEquals(4, params.size());
+        assertFalse(params.isStrictParams());
+        assertFalse(params.isFormParamsRequired());
+
+        final BindingPlan form = plan("form");
+        assertTrue(form.isStrictParams());
+        assertTrue(form.isFormParamsRequired());
+    }
+
+    @Test
+    public void testBindsEachParameter() throws Exception
+    {
+        final HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add("x-count", "3");
+        final ResourceArgs args = bind(plan("params"), headers);
+        assertTrue(args.isComplete());
+        assertArrayEquals(new Object[] { 42, "first", 3L, null }, args.getArgs());
+    }
+
+    @Test
+    public void testHeaderDefaultValue() throws Exception
+    {
+        final ResourceArgs args = bind(plan("params"), new DefaultHttpHeaders());
+        assertEquals(7L, args.getArgs()[2]);
+    }
+
+    @Test
+    public void testMissingRequiredParamIsIncomplete() throws Exception
+    {
+        final ResourceArgs args = ResourceArgs.builder()
+                .resourcePath(ResourcePath.withPattern("/").parse("/").get())
+                .httpMethod(HttpMethod.GET)
+                .bindingPlan(plan("required"))
+                .build();
+        assertFalse(args.isComplete());
+    }
+
+    @Test
+    public void testElementsAreParsedFromStream() throws Exception
+    {
+        final BindingPlan elements = plan("elements");
+        assertTrue(elements.isStreaming());
+
+        final RequestBodyStream stream = new RequestBodyStream(new EmbeddedChannel(new ChannelInboundHandlerAdapter()));
+        stream.offer(Unpooled.copiedBuffer("[1, 2", CharsetUtil.UTF_8));
+        stream.offer(Unpooled.copiedBuffer("3, 4]", CharsetUtil.UTF_8));
+        stream.finish();
+        final ResourceArgs args = ResourceArgs.builder()
+                .resourcePath(ResourcePath.withPattern("/").parse("/").get())
+                .httpMethod(HttpMethod.POST)
+                .bindingPlan(elements)
+                .bodyStream(Optional.of(stream))
+                .build();
+        assertTrue(args.isComplete());
+        assertEquals(Lists.newArrayList(1, 23, 4), Lists.newArrayList((Iterator<?>) args.getArgs()[0]));
+    }
+
+    @Test
+    public void testIncrementalBodyIsParsedFromStream() throws Exception
+    {
+        final BindingPlan incremental = plan("incremental");
+        assertTrue(incremental.isStreaming());
+        assertFalse(plan("body").isStreaming());
+
+        final RequestBodyStream stream = new RequestBodyStream(new EmbeddedChannel(new ChannelInboundHandlerAdapter()));
+        stream.offer(Unpooled.copiedBuffer("{\"s\":\"split ", CharsetUtil.UTF_8));
+        stream.offer(Unpooled.copiedBuffer("across chunks\"}", CharsetUtil.UTF_8));
+        stream.finish();
+        final HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HttpHeaders.Names.CONTENT_TYPE, ContentType.APPLICATION_JSON);
+        final ResourceArgs args = ResourceArgs.builder()
+                .resourcePath(ResourcePath.withPattern("/").parse("/").get())
+                .httpMethod(HttpMethod.POST)
+                .httpHeaders(Optional.of(headers))
+                .bindingPlan(incremental)
+                .bodyStream(Optional.of(stream))
+                .build();
+        assertTrue(args.isComplete());
+        assertEquals("split across chunks", args.getArgs()[0].toString());
+    }
+
+    @Test
+    public void testSuspendedAsyncResponse() throws Exception
+    {
+        final BindingPlan suspended = plan("suspended");
+        assertTrue(suspended.isSuspended());
+        assertFalse(plan("params").isSuspended());
+
+        final ResourceArgs unsuspended = ResourceArgs.builder()
+                .resourcePath(ResourcePath.withPattern("/").parse("/").get())
+                .httpMethod(HttpMethod.GET)
+                .bindingPlan(suspended)
+                .build();
+        assertFalse(unsuspended.isComplete());
+    }
+
+    private static Object bindBody(final byte[] bytes, final String contentType) throws Exception
+    {
+        final ResourceArgs args = ResourceArgs.builder()
+                .resourcePath(ResourcePath.withPattern("/").parse("/").get())
+                .httpMethod(HttpMethod.POST)
+                .content(HttpContent.create(RequestBody.of(Unpooled.wrappedBuffer(bytes)),
+                        Lists.newArrayList(ContentType.valueOf(contentType)), Lists.newArrayList()))
+                .bindingPlan(plan("body"))
+                .build();
+        assertTrue(args.isComplete());
+        return args.getArgs()[0];
+    }
+
+    @Test
+    public void testJsonBodyBoundFromBytes() throws Exception
+    {
+        assertEquals("caf\u00e9 100% a+b",
+                bindBody("{\"s\":\"caf\u00e9 100% a+b\"}".getBytes(CharsetUtil.UTF_8), ContentType.APPLICATION_JSON).toString());
+    }
+
+    @Test
+    public void testJsonBodyInOtherCharset() throws Exception
+    {
+        assertEquals("caf\u00e9",
+                bindBody("{\"s\":\"caf\u00e9\"}".getBytes(CharsetUtil.ISO_8859_1), "application/json; charset=ISO-8859-1").toString());
+    }
+}
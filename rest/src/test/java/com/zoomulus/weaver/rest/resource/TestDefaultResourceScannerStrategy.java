@@ -6,13 +6,20 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import io.netty.handler.codec.http.HttpMethod;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
 
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.RestApplication;
 
 public class TestDefaultResourceScannerStrategy
 {
@@ -272,4 +279,63 @@ public class TestDefaultResourceScannerStrategy
         final Resource r = ris.values().iterator().next();
         assertTrue(r.produces(ContentType.TEXT_PLAIN));
     }
+    
+    @Path("/sequences")
+    public static class SequenceResource
+    {
+        @GET
+        @Path("/list")
+        public List<String> list() { return Lists.newArrayList("a"); }
+        
+        @GET
+        @Path("/iterable")
+        public Iterable<String> iterable() { return Lists.newArrayList("a"); }
+        
+        @GET
+        @Path("/stream")
+        public Stream<String> stream() { return Stream.of("a"); }
+    }
+    
+    @Test
+    public void testOnlyLazySequencesAreStreamedResponses()
+    {
+        final Map<ResourceIdentifier, Resource> ris = scanner.scan(Sets.newHashSet(SequenceResource.class));
+        assertFalse(ris.get(new ResourceIdentifier("/sequences/list", HttpMethod.GET)).isStreamedResponse());
+        assertTrue(ris.get(new ResourceIdentifier("/sequences/iterable", HttpMethod.GET)).isStreamedResponse());
+        assertTrue(ris.get(new ResourceIdentifier("/sequences/stream", HttpMethod.GET)).isStreamedResponse());
+    }
+    
+    @Path("/lists")
+    public static class ListResource
+    {
+        @GET
+        public List<String> list() { return Lists.newArrayList("a"); }
+    }
+    
+    @Test
+    public void testCollectionResponsesNeedNoWorkerPool()
+    {
+        assertTrue(RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(ListResource.class))
+                .build()
+                .getBlockingExecutionStrategy()
+                .isInline());
+    }
+    
+    @Test
+    public void testContentTypesParsedAtScanTime()
+    {
+        final Map<ResourceIdentifier, Resource> consumes = scanner.scan(Sets.newHashSet(ConsumesTestResource.class));
+        assertEquals(Lists.newArrayList(ContentType.APPLICATION_FORM_URLENCODED_TYPE),
+                consumes.get(new ResourceIdentifier("/ctr/r1", HttpMethod.POST)).getAcceptedContentTypes());
+        assertEquals(Lists.newArrayList(ContentType.APPLICATION_JSON_TYPE, ContentType.APPLICATION_XML_TYPE),
+                consumes.get(new ResourceIdentifier("/ctr/r3", HttpMethod.POST)).getAcceptedContentTypes());
+        
+        final Map<ResourceIdentifier, Resource> produces = scanner.scan(Sets.newHashSet(ProducesTestResource.class));
+        assertEquals(Lists.newArrayList(ContentType.TEXT_HTML_TYPE),
+                produces.get(new ResourceIdentifier("/ptr/r1", HttpMethod.GET)).getProducedContentTypes());
+        assertEquals(Lists.newArrayList(ContentType.TEXT_XML_TYPE),
+                produces.get(new ResourceIdentifier("/ptr/r2", HttpMethod.GET)).getProducedContentTypes());
+        assertTrue(scanner.scan(singleGet).values().iterator().next().getProducedContentTypes().isEmpty());
+    }
 }
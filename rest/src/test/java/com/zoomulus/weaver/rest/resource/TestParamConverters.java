@@ -0,0 +1,149 @@
+package com.zoomulus.weaver.rest.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.zoomulus.weaver.rest.CustomValueOfString;
+import com.zoomulus.weaver.rest.CustomWithStringCtor;
+
+public class TestParamConverters
+{
+    public enum Color
+    {
+        RED, GREEN;
+
+        public static Color fromString(final String s)
+        {
+            return valueOf(s.toUpperCase());
+        }
+    }
+
+    public static class Unconvertible { }
+
+    public static class Failing
+    {
+        public Failing(final String s)
+        {
+            throw new IllegalArgumentException(s);
+        }
+    }
+
+    public static class Endpoints
+    {
+        public void params(List<Integer> ints, Set<Color> colors, SortedSet<Long> longs, List<String> strings) { }
+    }
+
+    private static Type[] genericTypes() throws NoSuchMethodException
+    {
+        for (final Method m : Endpoints.class.getMethods())
+        {
+            if (m.getName().equals("params")) return m.getGenericParameterTypes();
+        }
+        throw new NoSuchMethodException();
+    }
+
+    @Test
+    public void testPrimitives() throws Exception
+    {
+        assertEquals(42, ParamConverters.forType(int.class).fromString("42"));
+        assertEquals(true, ParamConverters.forType(boolean.class).fromString("true"));
+        assertEquals(2.5, ParamConverters.forType(double.class).fromString("2.5"));
+        assertNull(ParamConverters.forType(char.class).fromString("c"));
+    }
+
+    @Test
+    public void testStringConstructorAndValueOf() throws Exception
+    {
+        assertEquals(7L, ParamConverters.forType(Long.class).fromString("7"));
+        assertEquals("abc", ParamConverters.forType(CustomWithStringCtor.class).fromString("abc").toString());
+        assertEquals("abc", ParamConverters.forType(CustomValueOfString.class).fromString("abc").toString());
+    }
+
+    @Test
+    public void testEnumPrefersFromString() throws Exception
+    {
+        assertEquals(Color.GREEN, ParamConverters.forType(Color.class).fromString("green"));
+    }
+
+    @Test
+    public void testConvertersAreCached()
+    {
+        assertSame(ParamConverters.forType(Long.class), ParamConverters.forType(Long.class));
+        assertSame(ParamConverters.IDENTITY, ParamConverters.forType(Unconvertible.class));
+        assertSame(ParamConverters.IDENTITY, ParamConverters.forType(Unconvertible.class));
+    }
+
+    @Test(expected=InvocationTargetException.class)
+    public void testFactoryFailureIsWrapped() throws Exception
+    {
+        ParamConverters.forType(Failing.class).fromString("boom");
+    }
+
+    @Test
+    public void testCollectionElementsAreConverted() throws Exception
+    {
+        final Type[] types = genericTypes();
+        final ParamConverters converters = ParamConverters.defaults();
+        final Annotation[] none = new Annotation[0];
+
+        assertEquals(Lists.newArrayList(1, 2),
+                converters.forCollection(List.class, types[0], none).get().fromStrings(ImmutableList.of("1", "2")));
+        assertEquals(Sets.newHashSet(Color.RED),
+                converters.forCollection(Set.class, types[1], none).get().fromStrings(ImmutableList.of("red", "RED")));
+        assertEquals(Sets.newTreeSet(Lists.newArrayList(1L, 3L)),
+                converters.forCollection(SortedSet.class, types[2], none).get().fromStrings(ImmutableList.of("3", "1")));
+
+        final List<String> strings = ImmutableList.of("a", "b");
+        assertSame(strings, converters.forCollection(List.class, types[3], none).get().fromStrings(strings));
+        assertFalse(converters.forCollection(String.class, String.class, none).isPresent());
+    }
+
+    @Test
+    public void testProvidersConsultedFirst() throws Exception
+    {
+        final ParamConverterProvider provider = new ParamConverterProvider() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> ParamConverter<T> getConverter(final Class<T> rawType, final Type genericType, final Annotation[] annotations)
+            {
+                if (Long.class != rawType) return null;
+                return (ParamConverter<T>) new ParamConverter<Long>() {
+                    @Override
+                    public Long fromString(final String value)
+                    {
+                        return Long.parseLong(value, 16);
+                    }
+
+                    @Override
+                    public String toString(final Long value)
+                    {
+                        return Long.toHexString(value);
+                    }
+                };
+            }
+        };
+        final ParamConverters converters = new ParamConverters(ImmutableList.of(provider));
+        assertEquals(255L, converters.forParameter(Long.class, Long.class, new Annotation[0]).fromString("ff"));
+        assertEquals(10, converters.forParameter(Integer.class, Integer.class, new Annotation[0]).fromString("10"));
+        assertTrue(ParamConverters.forType(Long.class).fromString("10").equals(10L));
+    }
+}
@@ -0,0 +1,83 @@
+package com.zoomulus.weaver.rest.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Test;
+
+public class TestResourceInvoker
+{
+    public static class PublicResource
+    {
+        public String echo(final String s, final int n)
+        {
+            return s + n;
+        }
+
+        public void fail()
+        {
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    static class HiddenResource
+    {
+        public HiddenResource() { }
+
+        public String get()
+        {
+            return "hidden";
+        }
+    }
+
+    public static class NoDefaultConstructor
+    {
+        public NoDefaultConstructor(final String s) { }
+
+        public String get()
+        {
+            return "none";
+        }
+    }
+
+    @Test
+    public void testInvokePublicResource() throws Exception
+    {
+        final ResourceInvoker invoker = ResourceInvoker.create(PublicResource.class.getMethod("echo", String.class, int.class));
+        assertEquals(2, invoker.getParameterCount());
+        assertEquals("a1", invoker.invoke(ResourceInvoker.constructor(PublicResource.class).newInstance(),
+                new Object[] { "a", 1 }));
+    }
+
+    @Test
+    public void testInvokeNonPublicResource() throws Exception
+    {
+        final ResourceInvoker invoker = ResourceInvoker.create(HiddenResource.class.getMethod("get"));
+        assertEquals("hidden", invoker.invoke(ResourceInvoker.constructor(HiddenResource.class).newInstance(),
+                new Object[0]));
+    }
+
+    @Test
+    public void testResourceExceptionIsWrapped() throws Exception
+    {
+        final ResourceInvoker invoker = ResourceInvoker.create(PublicResource.class.getMethod("fail"));
+        try
+        {
+            invoker.invoke(new PublicResource(), new Object[0]);
+            fail();
+        }
+        catch (InvocationTargetException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected=NoSuchMethodException.class)
+    public void testMissingDefaultConstructor() throws Exception
+    {
+        ResourceInvoker.constructor(NoDefaultConstructor.class).newInstance();
+    }
+}
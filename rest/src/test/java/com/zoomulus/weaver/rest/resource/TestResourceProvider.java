@@ -0,0 +1,293 @@
+package com.zoomulus.weaver.rest.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.zoomulus.weaver.rest.RestApplication;
+import com.zoomulus.weaver.rest.annotations.Pooled;
+import com.zoomulus.weaver.rest.content.RequestBody;
+import com.zoomulus.weaver.rest.execution.ExecutionStrategy;
+import com.zoomulus.weaver.rest.response.RestResponse;
+
+public class TestResourceProvider
+{
+    @Path("perrequest")
+    public static class PerRequestResource
+    {
+        @GET
+        public String get() { return "get"; }
+    }
+
+    @Singleton
+    @Path("singleton")
+    public static class SingletonResource
+    {
+        @GET
+        public String get() { return "get"; }
+
+        @POST
+        public String post() { return "post"; }
+    }
+
+    @Pooled(size=2)
+    @Path("pooled")
+    public static class PooledResource
+    {
+        @GET
+        public String get() { return "get"; }
+    }
+
+    @Pooled(size=0)
+    @Path("pooled/empty")
+    public static class EmptyPoolResource
+    {
+        @GET
+        public String get() { return "get"; }
+    }
+
+    @Pooled(size=4)
+    @Path("pooled/instances")
+    public static class InstanceResource
+    {
+        static final Set<Object> instances = Sets.newConcurrentHashSet();
+        static final List<CompletableFuture<String>> pending = Lists.newCopyOnWriteArrayList();
+
+        public InstanceResource()
+        {
+            instances.add(this);
+        }
+
+        @GET
+        public String get() { return String.valueOf(System.identityHashCode(this)); }
+
+        @GET
+        @Path("async")
+        public CompletionStage<String> getAsync()
+        {
+            final CompletableFuture<String> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+    }
+
+    public static class Greeting
+    {
+        public String greet() { return "hello"; }
+    }
+
+    @Path("injected")
+    public static class InjectedResource
+    {
+        @Inject
+        Greeting greeting;
+
+        @GET
+        public String get() { return greeting.greet(); }
+    }
+
+    private static ResourceProvider providerFor(final Class<?> resourceClass)
+    {
+        return ResourceProvider.forClass(resourceClass, Optional.empty());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testPoolSizeBelowOneFailsScan()
+    {
+        new DefaultResourceScannerStrategy().scan(Sets.newHashSet(EmptyPoolResource.class));
+    }
+
+    @Test
+    public void testScopeResolvedFromAnnotations()
+    {
+        assertEquals(ResourceScope.REQUEST, ResourceScope.of(PerRequestResource.class));
+        assertEquals(ResourceScope.SINGLETON, ResourceScope.of(SingletonResource.class));
+        assertEquals(ResourceScope.POOLED, ResourceScope.of(PooledResource.class));
+    }
+
+    @Test
+    public void testPerRequestCreatesNewInstances() throws Exception
+    {
+        final ResourceProvider provider = providerFor(PerRequestResource.class);
+        assertNotSame(provider.acquire(), provider.acquire());
+    }
+
+    @Test
+    public void testSingletonSharesOneInstance() throws Exception
+    {
+        final ResourceProvider provider = providerFor(SingletonResource.class);
+        assertSame(provider.acquire(), provider.acquire());
+    }
+
+    @Test
+    public void testSingletonSharedAcrossEndpoints() throws Exception
+    {
+        final Map<ResourceIdentifier, Resource> resources =
+                new DefaultResourceScannerStrategy().scan(Sets.newHashSet(SingletonResource.class));
+        final Resource get = resources.get(new ResourceIdentifier("/singleton", HttpMethod.GET));
+        final Resource post = resources.get(new ResourceIdentifier("/singleton", HttpMethod.POST));
+        assertSame(get.getProvider(), post.getProvider());
+        assertSame(get.getProvider().acquire(), post.getProvider().acquire());
+    }
+
+    @Test
+    public void testPooledReusesReleasedInstances() throws Exception
+    {
+        final ResourceProvider provider = providerFor(PooledResource.class);
+        final Object first = provider.acquire();
+        final Object second = provider.acquire();
+        assertNotSame(first, second);
+        provider.release(first);
+        assertSame(first, provider.acquire());
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception
+    {
+        final ResourceProvider provider = providerFor(PooledResource.class);
+        final Object a = provider.acquire();
+        final Object b = provider.acquire();
+        final Object c = provider.acquire();
+        provider.release(a);
+        provider.release(b);
+        provider.release(c);
+        assertSame(b, provider.acquire());
+        assertSame(a, provider.acquire());
+        final Object d = provider.acquire();
+        assertNotSame(a, d);
+        assertNotSame(b, d);
+        assertNotSame(c, d);
+    }
+
+    @Test
+    public void testInstancesFromInjector() throws Exception
+    {
+        final Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure()
+            {
+                bind(Greeting.class).toInstance(new Greeting() {
+                    @Override
+                    public String greet() { return "injected"; }
+                });
+                bind(PerRequestResource.class).in(com.google.inject.Singleton.class);
+            }
+        });
+
+        final ResourceProvider injected = ResourceProvider.forClass(InjectedResource.class, Optional.of(injector));
+        assertEquals("injected", ((InjectedResource)injected.acquire()).get());
+        assertNotSame(injected.acquire(), injected.acquire());
+
+        final ResourceProvider boundSingleton = ResourceProvider.forClass(PerRequestResource.class, Optional.of(injector));
+        assertSame(boundSingleton.acquire(), boundSingleton.acquire());
+    }
+
+    private static RouteMatch route(final String path)
+    {
+        return RestApplication.builder()
+                .resourceClasses(Sets.newHashSet(InstanceResource.class))
+                .build()
+                .getRouter()
+                .route(HttpMethod.GET, path)
+                .get();
+    }
+
+    @Test
+    public void testPooledReusedAcrossWorkerThreads() throws Exception
+    {
+        InstanceResource.instances.clear();
+        final RouteMatch match = route("/pooled/instances");
+        final ExecutorService eventLoop = Executors.newSingleThreadExecutor();
+        // Each of the first few tasks starts a new worker thread.
+        final ExecutionStrategy workers = ExecutionStrategy.workerPool(4, 4);
+        final AtomicReference<RestResponse> rsp = new AtomicReference<>();
+        try
+        {
+            for (int i = 0; i < 8; i++)
+            {
+                final CountDownLatch done = new CountDownLatch(1);
+                workers.execute(() -> {
+                    rsp.set(match.getResource().get().invoke(RequestBody.empty(), Optional.empty(),
+                            match.getResourcePath().get(), Optional.empty(), ImmutableMap.of(),
+                            Optional.of(eventLoop), UnpooledByteBufAllocator.DEFAULT));
+                    done.countDown();
+                });
+                assertTrue(done.await(5, TimeUnit.SECONDS));
+                assertEquals(200, rsp.get().getStatus().code());
+                rsp.get().release();
+            }
+            assertEquals(1, InstanceResource.instances.size());
+        }
+        finally
+        {
+            workers.shutdown();
+            eventLoop.shutdown();
+        }
+    }
+
+    @Test
+    public void testPooledAsyncInstanceHeldUntilComplete() throws Exception
+    {
+        InstanceResource.instances.clear();
+        InstanceResource.pending.clear();
+        final RouteMatch match = route("/pooled/instances/async");
+        final ScheduledExecutorService eventLoop = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final CompletionStage<RestResponse> first = invokeAsync(match, eventLoop);
+            final CompletionStage<RestResponse> second = invokeAsync(match, eventLoop);
+            assertEquals(2, InstanceResource.instances.size());
+
+            for (final CompletableFuture<String> result : InstanceResource.pending)
+            {
+                result.complete("done");
+            }
+            first.toCompletableFuture().get(5, TimeUnit.SECONDS).release();
+            second.toCompletableFuture().get(5, TimeUnit.SECONDS).release();
+
+            // Both are back in the pool.
+            invokeAsync(match, eventLoop);
+            assertEquals(2, InstanceResource.instances.size());
+        }
+        finally
+        {
+            eventLoop.shutdown();
+        }
+    }
+
+    private static CompletionStage<RestResponse> invokeAsync(final RouteMatch match, final ScheduledExecutorService eventLoop)
+    {
+        return match.getResource().get().invokeAsync(RequestBody.empty(), match.getResourcePath().get(),
+                Optional.empty(), ImmutableMap.of(), eventLoop, UnpooledByteBufAllocator.DEFAULT);
+    }
+}
@@ -0,0 +1,166 @@
+package com.zoomulus.weaver.rest.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TestResourceRouter
+{
+    private final Map<ResourceIdentifier, Resource> resources = Maps.newHashMap();
+    private ResourceRouter router;
+
+    private Resource add(final String path, final HttpMethod method)
+    {
+        final Resource resource = Resource.builder().path(path).httpMethod(method).build();
+        resources.put(new ResourceIdentifier(path, method), resource);
+        return resource;
+    }
+
+    private Resource getUsersMe;
+    private Resource getUsersId;
+    private Resource putUsersId;
+    private Resource getZip;
+    private Resource getRoot;
+    private Resource getBacktrack;
+
+    @Before
+    public void setUp()
+    {
+        getRoot = add("/", HttpMethod.GET);
+        getUsersMe = add("/users/me", HttpMethod.GET);
+        getUsersId = add("/users/{id}", HttpMethod.GET);
+        putUsersId = add("/users/{userId}", HttpMethod.PUT);
+        getZip = add("/zip/{code: \\d{5}}", HttpMethod.GET);
+        getBacktrack = add("/users/{id}/profile", HttpMethod.GET);
+        add("/users/me/settings", HttpMethod.POST);
+        router = ResourceRouter.create(resources);
+    }
+
+    private RouteMatch route(final HttpMethod method, final String path)
+    {
+        final Optional<RouteMatch> match = router.route(method, path);
+        assertTrue(match.isPresent());
+        return match.get();
+    }
+
+    @Test
+    public void testRouteRoot()
+    {
+        assertSame(getRoot, route(HttpMethod.GET, "/").getResource().get());
+        assertSame(getRoot, route(HttpMethod.GET, "").getResource().get());
+    }
+
+    @Test
+    public void testLiteralPreferredOverCapture()
+    {
+        assertSame(getUsersMe, route(HttpMethod.GET, "/users/me").getResource().get());
+        assertSame(getUsersMe, route(HttpMethod.GET, "/users/me/").getResource().get());
+    }
+
+    @Test
+    public void testCapture()
+    {
+        final RouteMatch match = route(HttpMethod.GET, "/users/bob");
+        assertSame(getUsersId, match.getResource().get());
+        assertEquals("bob", match.getResourcePath().get().get("id"));
+    }
+
+    @Test
+    public void testCaptureNameIsPerRoute()
+    {
+        final RouteMatch match = route(HttpMethod.PUT, "/users/bob");
+        assertSame(putUsersId, match.getResource().get());
+        assertEquals("bob", match.getResourcePath().get().get("userId"));
+        assertEquals(null, match.getResourcePath().get().get("id"));
+    }
+
+    @Test
+    public void testRegexCapture()
+    {
+        final RouteMatch match = route(HttpMethod.GET, "/zip/12345");
+        assertSame(getZip, match.getResource().get());
+        assertEquals("12345", match.getResourcePath().get().get("code"));
+        assertFalse(router.route(HttpMethod.GET, "/zip/1234").isPresent());
+    }
+
+    @Test
+    public void testBacktracksFromLiteralToCapture()
+    {
+        final RouteMatch match = route(HttpMethod.GET, "/users/me/profile");
+        assertSame(getBacktrack, match.getResource().get());
+        assertEquals("me", match.getResourcePath().get().get("id"));
+    }
+
+    @Test
+    public void testMatrixParams()
+    {
+        final RouteMatch match = route(HttpMethod.GET, "/users;a=1/bob;b=2");
+        assertSame(getUsersId, match.getResource().get());
+        final ResourcePath rp = match.getResourcePath().get();
+        assertEquals("bob", rp.get("id"));
+        assertEquals("1", rp.matrixParamGet("a"));
+        assertEquals("2", rp.matrixParamGet("b"));
+        assertEquals("bob", rp.getPathSegment("id").get().getPath());
+        assertEquals("2", rp.getPathSegment("id").get().getMatrixParameters().getFirst("b"));
+    }
+
+    @Test
+    public void testMethodNotAllowed()
+    {
+        final RouteMatch match = route(HttpMethod.DELETE, "/users/bob");
+        assertFalse(match.isMethodAllowed());
+        assertFalse(match.getResourcePath().isPresent());
+        assertEquals(Sets.newHashSet(HttpMethod.GET, HttpMethod.PUT), match.getAllowedMethods());
+    }
+
+    @Test
+    public void testMethodNotAllowedCollectsAllMatchingPaths()
+    {
+        final RouteMatch match = route(HttpMethod.POST, "/users/me");
+        assertFalse(match.isMethodAllowed());
+        assertEquals(Sets.newHashSet(HttpMethod.GET, HttpMethod.PUT), match.getAllowedMethods());
+    }
+
+    @Test
+    public void testNotFound()
+    {
+        assertFalse(router.route(HttpMethod.GET, "/nothing/here").isPresent());
+        assertFalse(router.route(HttpMethod.GET, "/users/bob/extra/segments").isPresent());
+        assertFalse(router.route(HttpMethod.GET, null).isPresent());
+    }
+
+    @Test
+    public void testMatchStopsAtPathEnd()
+    {
+        final PathCaptures captures = new PathCaptures();
+        final String uri = "/users/bob?id=alice";
+        assertEquals(RouteStatus.FOUND, router.match(HttpMethod.GET, uri, uri.indexOf('?'), captures));
+        assertSame(getUsersId, captures.getResource());
+        assertEquals("bob", captures.toResourcePath().get("id"));
+        assertEquals("/users/bob", captures.toResourcePath().toString());
+    }
+
+    @Test
+    public void testResourcePathSurvivesCaptureReuse()
+    {
+        final PathCaptures captures = new PathCaptures();
+        assertEquals(RouteStatus.FOUND, router.match(HttpMethod.GET, "/users/bob;x=1", 14, captures));
+        final ResourcePath first = captures.toResourcePath();
+        assertEquals(RouteStatus.METHOD_NOT_ALLOWED, router.match(HttpMethod.DELETE, "/zip/12345", 10, captures));
+        assertEquals(RouteStatus.NOT_FOUND, router.match(HttpMethod.GET, "/a/b/c/d/e/f/g/h/i/j", 20, captures));
+        assertEquals("bob", first.get("id"));
+        assertEquals("1", first.matrixParamGet("x"));
+        assertTrue(first.keySet().contains("id"));
+    }
+}
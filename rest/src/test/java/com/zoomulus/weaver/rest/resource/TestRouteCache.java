@@ -0,0 +1,97 @@
+package com.zoomulus.weaver.rest.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class TestRouteCache
+{
+    private Resource getUsersId;
+    private Resource getHealth;
+    private RouteCache cache;
+    private final PathCaptures captures = new PathCaptures();
+
+    @Before
+    public void setUp()
+    {
+        final Map<ResourceIdentifier, Resource> resources = Maps.newHashMap();
+        getUsersId = Resource.builder().path("/users/{id}").httpMethod(HttpMethod.GET).build();
+        getHealth = Resource.builder().path("/health").httpMethod(HttpMethod.GET).build();
+        resources.put(new ResourceIdentifier("/users/{id}", HttpMethod.GET), getUsersId);
+        resources.put(new ResourceIdentifier("/health", HttpMethod.GET), getHealth);
+        cache = new RouteCache(ResourceRouter.create(resources), 2);
+    }
+
+    private RouteStatus match(final HttpMethod method, final String uri)
+    {
+        final int queryStart = uri.indexOf('?');
+        return cache.match(method, uri, -1 == queryStart ? uri.length() : queryStart, captures);
+    }
+
+    @Test
+    public void testHitAfterMiss()
+    {
+        assertEquals(RouteStatus.FOUND, match(HttpMethod.GET, "/users/me"));
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        assertEquals(RouteStatus.FOUND, match(HttpMethod.GET, "/users/me"));
+        assertSame(getUsersId, captures.getResource());
+        assertEquals("me", captures.toResourcePath().get("id"));
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    public void testQueryStringIsNotPartOfKey()
+    {
+        match(HttpMethod.GET, "/users/me?a=1");
+        assertEquals(RouteStatus.FOUND, match(HttpMethod.GET, "/users/me?b=2"));
+        assertEquals(1, cache.hitCount());
+        assertEquals("/users/me", captures.toResourcePath().toString());
+    }
+
+    @Test
+    public void testMethodIsPartOfKey()
+    {
+        match(HttpMethod.GET, "/health");
+        assertEquals(RouteStatus.METHOD_NOT_ALLOWED, match(HttpMethod.POST, "/health"));
+        assertEquals(0, cache.hitCount());
+    }
+
+    @Test
+    public void testFailuresAreNotCached()
+    {
+        assertEquals(RouteStatus.NOT_FOUND, match(HttpMethod.GET, "/nope"));
+        assertEquals(RouteStatus.NOT_FOUND, match(HttpMethod.GET, "/nope"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCacheIsBounded()
+    {
+        match(HttpMethod.GET, "/users/a");
+        match(HttpMethod.GET, "/users/b");
+        match(HttpMethod.GET, "/users/c");
+        match(HttpMethod.GET, "/health");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testRestoredCapturesAreIndependentOfCache()
+    {
+        match(HttpMethod.GET, "/users/alice");
+        final ResourcePath first = captures.toResourcePath();
+        match(HttpMethod.GET, "/users/alice");
+        match(HttpMethod.GET, "/health");
+        assertEquals(RouteStatus.FOUND, match(HttpMethod.GET, "/users/alice"));
+        assertEquals("alice", captures.toResourcePath().get("id"));
+        assertEquals("alice", first.get("id"));
+    }
+}
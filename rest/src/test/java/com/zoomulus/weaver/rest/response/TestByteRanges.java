@@ -0,0 +1,97 @@
+package com.zoomulus.weaver.rest.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.zoomulus.weaver.rest.response.ByteRanges.ByteRange;
+
+public class TestByteRanges
+{
+    private static ByteRanges parse(final String header, final long length)
+    {
+        return ByteRanges.parse(header, length).get();
+    }
+    
+    @Test
+    public void testSingleRange()
+    {
+        final ByteRanges ranges = parse("bytes=0-4", 100);
+        assertEquals(1, ranges.getRanges().size());
+        assertEquals(new ByteRange(0, 5), ranges.getRanges().get(0));
+        assertEquals("bytes 0-4/100", ranges.contentRange(ranges.getRanges().get(0)));
+        assertFalse(ranges.isMultipart());
+    }
+    
+    @Test
+    public void testOpenEndedRange()
+    {
+        assertEquals(new ByteRange(90, 10), parse("bytes=90-", 100).getRanges().get(0));
+    }
+    
+    @Test
+    public void testSuffixRange()
+    {
+        assertEquals(new ByteRange(80, 20), parse("bytes=-20", 100).getRanges().get(0));
+        assertEquals(new ByteRange(0, 100), parse("bytes=-200", 100).getRanges().get(0));
+    }
+    
+    @Test
+    public void testRangePastTheEndIsTruncated()
+    {
+        assertEquals(new ByteRange(50, 50), parse("bytes=50-1000", 100).getRanges().get(0));
+    }
+    
+    @Test
+    public void testOverlappingAndAdjacentRangesAreMerged()
+    {
+        final ByteRanges ranges = parse("bytes=20-29, 0-9,5-14,30-39", 100);
+        assertEquals(2, ranges.getRanges().size());
+        assertEquals(new ByteRange(0, 15), ranges.getRanges().get(0));
+        assertEquals(new ByteRange(20, 20), ranges.getRanges().get(1));
+        assertTrue(ranges.isMultipart());
+    }
+    
+    @Test
+    public void testUnsatisfiable()
+    {
+        final ByteRanges ranges = parse("bytes=100-200", 100);
+        assertFalse(ranges.isSatisfiable());
+        assertEquals("bytes */100", ranges.unsatisfiedContentRange());
+    }
+    
+    @Test
+    public void testInvalidHeadersAreIgnored()
+    {
+        assertEquals(Optional.empty(), ByteRanges.parse("items=0-4", 100));
+        assertEquals(Optional.empty(), ByteRanges.parse("bytes=5-4", 100));
+        assertEquals(Optional.empty(), ByteRanges.parse("bytes=a-b", 100));
+        assertEquals(Optional.empty(), ByteRanges.parse("bytes=", 100));
+    }
+    
+    @Test
+    public void testTooManyRangesAreIgnored()
+    {
+        final StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i < 40; i++)
+        {
+            header.append(',').append(2 * i).append('-').append(2 * i);
+        }
+        assertEquals(Optional.empty(), ByteRanges.parse(header.toString(), 100));
+    }
+    
+    @Test
+    public void testIfRange()
+    {
+        final Optional<String> date = Optional.of("Sat, 17 Oct 2026 10:00:00 GMT");
+        assertTrue(ByteRanges.ifRangeMatches(Optional.empty(), Optional.empty()));
+        assertTrue(ByteRanges.ifRangeMatches(date, date));
+        assertFalse(ByteRanges.ifRangeMatches(Optional.of("Fri, 16 Oct 2026 10:00:00 GMT"), date));
+        assertFalse(ByteRanges.ifRangeMatches(Optional.of("\"etag\""), date));
+        assertFalse(ByteRanges.ifRangeMatches(date, Optional.empty()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.zoomulus.weaver.rest.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestChunkedResponseBody
+{
+    private static String read(final HttpContent chunk)
+    {
+        final String s = chunk.content().toString(CharsetUtil.UTF_8);
+        chunk.release();
+        return s;
+    }
+    
+    @Test
+    public void testOutputIsCutIntoChunks() throws Exception
+    {
+        final AtomicInteger wakeups = new AtomicInteger();
+        final ChunkedResponseBody body = new ChunkedResponseBody(UnpooledByteBufAllocator.DEFAULT,
+                wakeups::incrementAndGet, 4, 16);
+        body.writeFrom(out -> out.write("abcdefghij".getBytes(CharsetUtil.UTF_8)));
+        assertEquals("abcd", read(body.readChunk(null)));
+        assertEquals("efgh", read(body.readChunk(null)));
+        assertEquals("ij", read(body.readChunk(null)));
+        assertFalse(body.isEndOfInput());
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, body.readChunk(null));
+        assertTrue(body.isEndOfInput());
+        assertTrue(wakeups.get() > 0);
+    }
+    
+    @Test
+    public void testNoChunkUntilWritten() throws Exception
+    {
+        final ChunkedResponseBody body = new ChunkedResponseBody(UnpooledByteBufAllocator.DEFAULT, () -> { });
+        assertNull(body.readChunk(null));
+        assertFalse(body.isEndOfInput());
+    }
+    
+    @Test
+    public void testWriterWaitsForChunksToBeTaken() throws Exception
+    {
+        final ChunkedResponseBody body = new ChunkedResponseBody(UnpooledByteBufAllocator.DEFAULT, () -> { }, 2, 2);
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                body.writeFrom(out -> out.write("aabbccdd".getBytes(CharsetUtil.UTF_8))));
+        Thread.sleep(100);
+        assertFalse(writer.isDone());
+        final StringBuilder sb = new StringBuilder();
+        HttpContent chunk;
+        while (LastHttpContent.EMPTY_LAST_CONTENT != (chunk = body.readChunk(null)))
+        {
+            if (null != chunk) sb.append(read(chunk));
+        }
+        writer.get(1, TimeUnit.SECONDS);
+        assertEquals("aabbccdd", sb.toString());
+    }
+    
+    @Test
+    public void testFailedOutputFailsTheBody() throws Exception
+    {
+        final ChunkedResponseBody body = new ChunkedResponseBody(UnpooledByteBufAllocator.DEFAULT, () -> { });
+        body.writeFrom(out -> { throw new IOException("broken"); });
+        try
+        {
+            body.readChunk(null);
+            fail();
+        }
+        catch (IOException e)
+        {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+    
+    @Test
+    public void testCloseUnblocksWriter() throws Exception
+    {
+        final ChunkedResponseBody body = new ChunkedResponseBody(UnpooledByteBufAllocator.DEFAULT, () -> { }, 1, 1);
+        final CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                body.writeFrom(out -> {
+                    try
+                    {
+                        out.write("abc".getBytes(CharsetUtil.UTF_8));
+                    }
+                    catch (IOException e)
+                    {
+                        failure.complete(e);
+                        throw e;
+                    }
+                }));
+        Thread.sleep(100);
+        body.close();
+        writer.get(1, TimeUnit.SECONDS);
+        assertTrue(failure.get(1, TimeUnit.SECONDS) instanceof ClosedChannelException);
+    }
+}
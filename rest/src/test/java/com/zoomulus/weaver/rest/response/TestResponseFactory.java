@@ -0,0 +1,217 @@
+package com.zoomulus.weaver.rest.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.CharsetUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.zoomulus.weaver.core.content.ContentType;
+import com.zoomulus.weaver.rest.CustomWithStringCtor;
+import com.zoomulus.weaver.rest.SimplePerson;
+
+public class TestResponseFactory
+{
+    private static final List<ContentType> NONE = Lists.newArrayList();
+    
+    @Test
+    public void testJsonIsWrittenIntoAllocatorBuffer()
+    {
+        final ResponseSizeHint hint = new ResponseSizeHint();
+        final RestResponse rsp = new ResponseFactory().generate(new SimplePerson("Zoë"),
+                Lists.newArrayList(ContentType.APPLICATION_JSON_TYPE), NONE,
+                PooledByteBufAllocator.DEFAULT, hint);
+        assertEquals(HttpResponseStatus.OK, rsp.getStatus());
+        assertEquals("application/json; charset=UTF-8", rsp.getContentType().get());
+        final ByteBuf buf = rsp.getContent();
+        assertTrue(buf.alloc() instanceof PooledByteBufAllocator);
+        try
+        {
+            assertTrue(buf.toString(CharsetUtil.UTF_8).contains("\"name\":\"Zoë\""));
+        }
+        finally
+        {
+            buf.release();
+        }
+    }
+    
+    @Test
+    public void testStringsAreText()
+    {
+        assertEquals("text", text(new ResponseFactory().generate("text", NONE, NONE)));
+    }
+    
+    @Test
+    public void testDeclaredToStringIsText()
+    {
+        final ResponseFactory factory = new ResponseFactory();
+        for (int i=0; i<2; i++)
+        {
+            final RestResponse rsp = factory.generate(new CustomWithStringCtor("value"), NONE, NONE);
+            assertEquals("text/plain; charset=UTF-8", rsp.getContentType().get());
+            assertEquals("value", text(rsp));
+        }
+    }
+    
+    @Test
+    public void testRenderingIsPerClass()
+    {
+        final ResponseFactory factory = new ResponseFactory();
+        assertEquals("text", text(factory.generate("text", NONE, NONE)));
+        assertTrue(text(factory.generate(new SimplePerson("x"), NONE, NONE)).contains("\"name\":\"x\""));
+        assertEquals("text", text(factory.generate("text", NONE, NONE)));
+    }
+    
+    @Test
+    public void testStreamingOutputIsStreamed()
+    {
+        final StreamingOutput output = out -> out.write(1);
+        final RestResponse rsp = new ResponseFactory().generate(output, NONE, NONE);
+        assertTrue(rsp.isStreamed());
+        assertEquals(ContentType.APPLICATION_OCTET_STREAM, rsp.getContentType().get());
+        assertEquals(0, rsp.getContent().readableBytes());
+    }
+    
+    @Test
+    public void testStreamingOutputNotAcceptable()
+    {
+        final ChannelOutput output = channel -> { };
+        final RestResponse rsp = new ResponseFactory().generate(output,
+                Lists.newArrayList(ContentType.APPLICATION_JSON_TYPE), NONE);
+        assertFalse(rsp.isStreamed());
+        assertEquals(HttpResponseStatus.NOT_ACCEPTABLE, rsp.getStatus());
+    }
+    
+    @Test
+    public void testStreamIsWrittenAsNdjsonAndClosed() throws IOException
+    {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final RestResponse rsp = new ResponseFactory().generate(Stream.of(1, 2).onClose(() -> closed.set(true)),
+                Lists.newArrayList(ContentType.APPLICATION_NDJSON_TYPE), NONE);
+        assertTrue(rsp.isStreamed());
+        assertFalse(closed.get());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rsp.getOutput().get().write(out);
+        assertEquals("1\n2\n", new String(out.toByteArray(), CharsetUtil.UTF_8));
+        assertTrue(closed.get());
+    }
+    
+    @Test
+    public void testFileIsSentFromDisk() throws IOException
+    {
+        final java.nio.file.Path path = Files.createTempFile("weaver", ".txt");
+        try
+        {
+            Files.write(path, "on disk".getBytes(CharsetUtil.UTF_8));
+            final RestResponse rsp = new ResponseFactory().generate(path.toFile(), NONE, NONE);
+            assertTrue(rsp.getFile().isPresent());
+            assertEquals(7, rsp.getFile().get().getCount());
+            assertTrue(rsp.getHeaders().containsKey("Last-Modified"));
+            rsp.release();
+            assertFalse(rsp.getFile().get().getChannel().isOpen());
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+    }
+    
+    @Test
+    public void testNotAcceptableReleasesBuffer()
+    {
+        final RestResponse rsp = new ResponseFactory().generate(new SimplePerson("x"),
+                Lists.newArrayList(ContentType.TEXT_HTML_TYPE), NONE);
+        assertEquals(HttpResponseStatus.NOT_ACCEPTABLE, rsp.getStatus());
+        assertFalse(rsp.getContent().isReadable());
+    }
+    
+    @Test
+    public void testNotAcceptableReleasesOrClosesEntity()
+    {
+        final List<ContentType> html = Lists.newArrayList(ContentType.TEXT_HTML_TYPE);
+        final List<ContentType> octets = Lists.newArrayList(ContentType.APPLICATION_OCTET_STREAM_TYPE);
+        
+        final ByteBuf buf = Unpooled.copiedBuffer("bytes", CharsetUtil.UTF_8);
+        assertEquals(HttpResponseStatus.NOT_ACCEPTABLE, new ResponseFactory().generate(buf, html, octets).getStatus());
+        assertEquals(0, buf.refCnt());
+        
+        final ByteBuf unproduced = Unpooled.copiedBuffer("bytes", CharsetUtil.UTF_8);
+        assertEquals(HttpResponseStatus.NOT_ACCEPTABLE, new ResponseFactory().generate(unproduced, html, NONE).getStatus());
+        assertEquals(0, unproduced.refCnt());
+        
+        final AtomicBoolean inClosed = new AtomicBoolean();
+        final ByteArrayInputStream in = new ByteArrayInputStream(new byte[1]) {
+            @Override
+            public void close()
+            {
+                inClosed.set(true);
+            }
+        };
+        assertEquals(HttpResponseStatus.NOT_ACCEPTABLE, new ResponseFactory().generate(in, html, octets).getStatus());
+        assertTrue(inClosed.get());
+        
+        final AtomicBoolean streamClosed = new AtomicBoolean();
+        assertEquals(HttpResponseStatus.NOT_ACCEPTABLE, new ResponseFactory().generate(
+                Stream.of(1).onClose(() -> streamClosed.set(true)), html, Lists.newArrayList(ContentType.APPLICATION_JSON_TYPE))
+                .getStatus());
+        assertTrue(streamClosed.get());
+    }
+    
+    @Test
+    public void testResponsesAreConverted()
+    {
+        final RestResponse rsp = new ResponseFactory().generate(
+                Response.status(Status.CREATED).entity("made").header("Location", "/things/1").build(), NONE, NONE);
+        assertEquals(HttpResponseStatus.CREATED, rsp.getStatus());
+        assertEquals("/things/1", rsp.getHeaders().get("Location"));
+        assertEquals("made", text(rsp));
+    }
+    
+    private static String text(final RestResponse rsp)
+    {
+        try
+        {
+            return rsp.getContent().toString(CharsetUtil.UTF_8);
+        }
+        finally
+        {
+            rsp.release();
+        }
+    }
+    
+    @Test
+    public void testSizeHintFollowsResponses()
+    {
+        final ResponseSizeHint hint = new ResponseSizeHint();
+        assertTrue(hint.next() >= ResponseSizeHint.MINIMUM);
+        for (int i=0; i<32; i++)
+        {
+            hint.record(10000);
+        }
+        assertTrue(hint.next() >= 10000);
+        assertTrue(hint.next() <= 12500);
+        for (int i=0; i<64; i++)
+        {
+            hint.record(10 * ResponseSizeHint.MAXIMUM);
+        }
+        assertEquals(ResponseSizeHint.MAXIMUM, hint.next());
+    }
+}